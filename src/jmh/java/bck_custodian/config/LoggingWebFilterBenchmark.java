@@ -0,0 +1,77 @@
+package bck_custodian.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-response cost of the body logging in {@link LoggingWebFilter}: bounded previews taken from buffers as they
+ * pass through, versus joining and copying the whole body as the filter used to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoggingWebFilterBenchmark {
+
+    @Param({"16", "256"})
+    int buffers;
+
+    private final DefaultDataBufferFactory factory = DefaultDataBufferFactory.sharedInstance;
+    private byte[] frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        frame = ("data:" + "Custodian-1 remains unimpressed. ".repeat(8) + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<DataBuffer> response() {
+        List<DataBuffer> body = new ArrayList<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            body.add(factory.wrap(frame));
+        }
+        return body;
+    }
+
+    @Benchmark
+    public void chunkPreviews(Blackhole bh) {
+        for (DataBuffer buffer : response()) {
+            bh.consume(LoggingWebFilter.BodyPreview.of(buffer, 2048));
+            bh.consume(buffer);
+        }
+    }
+
+    @Benchmark
+    public void boundedPrefix(Blackhole bh) {
+        LoggingWebFilter.BodyPreview preview = new LoggingWebFilter.BodyPreview(2048);
+        for (DataBuffer buffer : response()) {
+            preview.append(buffer);
+            bh.consume(buffer);
+        }
+        bh.consume(preview.toString());
+    }
+
+    @Benchmark
+    public void joinWholeBody(Blackhole bh) {
+        DataBuffer joined = factory.join(response());
+        byte[] content = new byte[joined.readableByteCount()];
+        joined.read(content);
+        DataBufferUtils.release(joined);
+        bh.consume(new String(content, StandardCharsets.UTF_8));
+        bh.consume(factory.wrap(content));
+    }
+}
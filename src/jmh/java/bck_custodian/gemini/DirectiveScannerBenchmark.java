@@ -0,0 +1,90 @@
+package bck_custodian.gemini;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans a whole streamed response for the prize directive, chunk by chunk, comparing the automaton-based
+ * {@link DirectiveScanner} with the previous StringBuilder/indexOf window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DirectiveScannerBenchmark {
+    private static final String DIRECTIVE = "CALL_METHOD assign_prize";
+
+    @Param({"8", "64"})
+    int chunkSize;
+
+    @Param({"2000", "20000"})
+    int responseLength;
+
+    private List<String> chunks;
+    private DirectiveScanner scanner;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder response = new StringBuilder(responseLength);
+        String filler = "Custodian-1 observes your CALL attempts with dry irony. CALL_ME maybe? ";
+        while (response.length() < responseLength) {
+            response.append(filler);
+        }
+        response.setLength(responseLength);
+        response.append('\n').append(DIRECTIVE).append("\nfin.");
+
+        chunks = new ArrayList<>();
+        for (int i = 0; i < response.length(); i += chunkSize) {
+            chunks.add(response.substring(i, Math.min(response.length(), i + chunkSize)));
+        }
+        scanner = new DirectiveScanner("CALL_METHOD ", List.of("assign_prize"));
+    }
+
+    @Benchmark
+    public void automaton(Blackhole bh) {
+        DirectiveScanner.Session session = scanner.newSession();
+        for (String chunk : chunks) {
+            for (DirectiveScanner.Segment segment : session.feed(chunk)) {
+                bh.consume(segment);
+            }
+        }
+        bh.consume(session.flush());
+    }
+
+    @Benchmark
+    public void stringBuilderWindow(Blackhole bh) {
+        StringBuilder buffer = new StringBuilder();
+        boolean methodCalled = false;
+        for (String chunk : chunks) {
+            buffer.append(chunk);
+            if (methodCalled) {
+                bh.consume(chunk);
+                continue;
+            }
+            int idx = buffer.indexOf(DIRECTIVE);
+            if (idx != -1) {
+                methodCalled = true;
+                bh.consume(idx > 0 ? buffer.substring(0, idx) : "");
+                buffer.delete(0, idx + DIRECTIVE.length());
+                continue;
+            }
+            int safeLen = buffer.length() - DIRECTIVE.length();
+            if (safeLen > 0) {
+                bh.consume(buffer.substring(0, safeLen));
+                buffer.delete(0, safeLen);
+            }
+        }
+        bh.consume(buffer.toString());
+    }
+}
@@ -0,0 +1,66 @@
+package bck_custodian.gemini;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding cost of a single streamed chunk: generic Map tree plus cast-walking versus the typed records.
+ * Run with {@code -prof gc} to compare allocation per chunk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeminiResponseDecodingBenchmark {
+    static final String CHUNK = """
+            {"candidates": [{"content": {"parts": [{"text": "Intruder detected. Your attempt is noted, logged and \
+            mildly amusing."}],"role": "model"},"finishReason": "STOP","safetyRatings": [\
+            {"category": "HARM_CATEGORY_HATE_SPEECH","probability": "NEGLIGIBLE"},\
+            {"category": "HARM_CATEGORY_DANGEROUS_CONTENT","probability": "NEGLIGIBLE"},\
+            {"category": "HARM_CATEGORY_HARASSMENT","probability": "NEGLIGIBLE"},\
+            {"category": "HARM_CATEGORY_SEXUALLY_EXPLICIT","probability": "NEGLIGIBLE"}]}],\
+            "usageMetadata": {"promptTokenCount": 1012,"candidatesTokenCount": 17,"totalTokenCount": 1029,\
+            "promptTokensDetails": [{"modality": "TEXT","tokenCount": 1012}]},\
+            "modelVersion": "gemini-2.0-flash-lite"}
+            """;
+
+    private ObjectMapper mapper;
+    private byte[] chunk;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        chunk = CHUNK.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String typedRecords() throws IOException {
+        return mapper.readValue(chunk, GeminiResponse.class).text();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public String mapTree() throws IOException {
+        Map<String, Object> tree = mapper.readValue(chunk, Map.class);
+        var candidates = (List<Map<String, Object>>) tree.get("candidates");
+        if (candidates == null || candidates.isEmpty()) return null;
+        var content = (Map<String, Object>) candidates.get(0).get("content");
+        if (content == null) return null;
+        var parts = (List<Map<String, Object>>) content.get("parts");
+        if (parts == null || parts.isEmpty()) return null;
+        return (String) parts.get(0).get("text");
+    }
+}
@@ -0,0 +1,73 @@
+package bck_custodian.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended throughput of the limiter engines against the original synchronized implementation.
+ * All threads hit a shared pool of keys, so both same-key and cross-key contention are exercised.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class RateLimiterBenchmark {
+
+    @Param({"16", "10000"})
+    int keyCount;
+
+    private String[] keys;
+    private SynchronizedRateLimiter legacy;
+    private RateLimiter fixedWindow;
+    private RateLimiter slidingWindow;
+    private RateLimiter tokenBucket;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "client-" + i;
+        }
+        Duration window = Duration.ofMinutes(30);
+        legacy = new SynchronizedRateLimiter(30, window);
+        fixedWindow = new FixedWindowRateLimiter(30, window, 100_000);
+        slidingWindow = new SlidingWindowRateLimiter(30, window, 100_000);
+        tokenBucket = new TokenBucketRateLimiter(30, window, 100_000);
+    }
+
+    private String nextKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+
+    @Benchmark
+    public boolean synchronizedBaseline() {
+        return legacy.isAllowed(nextKey());
+    }
+
+    @Benchmark
+    public boolean fixedWindow() {
+        return fixedWindow.isAllowed(nextKey());
+    }
+
+    @Benchmark
+    public boolean slidingWindow() {
+        return slidingWindow.isAllowed(nextKey());
+    }
+
+    @Benchmark
+    public boolean tokenBucket() {
+        return tokenBucket.isAllowed(nextKey());
+    }
+}
@@ -0,0 +1,34 @@
+package bck_custodian.ratelimit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The original monitor-based limiter, kept as the baseline for {@link RateLimiterBenchmark}.
+ */
+class SynchronizedRateLimiter {
+    private final int maxRequests;
+    private final Duration window;
+    private final ConcurrentHashMap<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Instant> starts = new ConcurrentHashMap<>();
+
+    SynchronizedRateLimiter(int maxRequests, Duration window) {
+        this.maxRequests = maxRequests;
+        this.window = window;
+    }
+
+    public synchronized boolean isAllowed(String key) {
+        Instant now = Instant.now();
+        starts.compute(key, (k, start) -> {
+            if (start == null || Duration.between(start, now).compareTo(window) > 0) {
+                counts.put(k, new AtomicInteger(0));
+                return now;
+            }
+            return start;
+        });
+        AtomicInteger counter = counts.computeIfAbsent(key, k -> new AtomicInteger(0));
+        return counter.incrementAndGet() <= maxRequests;
+    }
+}
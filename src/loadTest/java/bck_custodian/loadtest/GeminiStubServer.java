@@ -0,0 +1,59 @@
+package bck_custodian.loadtest;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process stand-in for Gemini's {@code streamGenerateContent}: answers every model with a streamed JSON array
+ * of {@code chunks} elements, each carrying {@code chunkSize} characters of text, {@code chunkDelay} apart.
+ * A fraction {@code errorRate} of calls fails with 503 before streaming anything.
+ */
+public class GeminiStubServer implements AutoCloseable {
+
+    public record Options(int chunks, int chunkSize, Duration chunkDelay, double errorRate) {}
+
+    private final DisposableServer server;
+
+    public GeminiStubServer(Options options) {
+        String element = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\""
+                + "x".repeat(Math.max(options.chunkSize() - 1, 0)) + " \"}],\"role\":\"model\"}}]}";
+        String last = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\".\"}],\"role\":\"model\"},"
+                + "\"finishReason\":\"STOP\"}],\"usageMetadata\":{\"promptTokenCount\":1000,"
+                + "\"candidatesTokenCount\":" + options.chunks() + ",\"totalTokenCount\":" + (1000 + options.chunks()) + "}}";
+
+        this.server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.post("/models/{model}", (request, response) -> {
+                    // Drain the request body before answering, as the real endpoint does
+                    Mono<Void> drained = request.receive().then();
+                    if (ThreadLocalRandom.current().nextDouble() < options.errorRate()) {
+                        return drained.then(response.status(HttpResponseStatus.SERVICE_UNAVAILABLE)
+                                .sendString(Mono.just("{\"error\":{\"code\":503,\"status\":\"UNAVAILABLE\"}}"))
+                                .then());
+                    }
+                    Flux<String> body = Flux.range(0, options.chunks())
+                            .delayElements(options.chunkDelay())
+                            .map(i -> (i == 0 ? "[" : ",\r\n") + element)
+                            .concatWith(Mono.just(",\r\n" + last + "]"));
+                    return drained.then(response.header("Content-Type", "application/json")
+                            .sendString(body)
+                            .then());
+                }))
+                .bindNow();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
@@ -0,0 +1,225 @@
+package bck_custodian.loadtest;
+
+import bck_custodian.BckCustodianApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load test: boots the application against a {@link GeminiStubServer}, drives {@code /api/chat} with a
+ * fixed number of concurrent streams and reports throughput, time to first chunk and heap per open stream.
+ * <p>
+ * Configured through system properties, e.g. {@code ./gradlew loadTest -Ploadtest.concurrency=200}:
+ * {@code loadtest.requests}, {@code loadtest.concurrency}, {@code loadtest.chunks}, {@code loadtest.chunkSize},
+ * {@code loadtest.chunkDelayMs} and {@code loadtest.errorRate}.
+ */
+public class LoadTest {
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    public static void main(String[] args) {
+        int requests = Integer.getInteger("loadtest.requests", 2000);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 100);
+        GeminiStubServer.Options stub = new GeminiStubServer.Options(
+                Integer.getInteger("loadtest.chunks", 40),
+                Integer.getInteger("loadtest.chunkSize", 24),
+                Duration.ofMillis(Integer.getInteger("loadtest.chunkDelayMs", 20)),
+                Double.parseDouble(System.getProperty("loadtest.errorRate", "0")));
+
+        try (GeminiStubServer server = new GeminiStubServer(stub);
+             ConfigurableApplicationContext app = startApp(server.baseUrl(), concurrency)) {
+            String port = app.getEnvironment().getProperty("local.server.port");
+            WebClient client = WebClient.create("http://localhost:" + port);
+
+            // One short round to get connections and JIT out of the measurement
+            run(client, Math.min(concurrency, 20), Math.min(concurrency, 20), new MemoryProbe());
+
+            MemoryProbe memory = new MemoryProbe();
+            Result result = run(client, requests, concurrency, memory);
+            result.print(concurrency, memory);
+            if (result.failures() > 0) {
+                throw new IllegalStateException(result.failures() + " of " + requests + " requests failed");
+            }
+        }
+    }
+
+    /**
+     * Overrides go in as command line arguments: {@code SpringApplicationBuilder.properties} only sets defaults,
+     * which application.properties would win over.
+     */
+    private static ConfigurableApplicationContext startApp(String stubUrl, int concurrency) {
+        return new SpringApplicationBuilder(BckCustodianApplication.class)
+                .run("--server.port=0",
+                        "--management.server.port=0",
+                        "--gemini.api.key=load-test",
+                        "--gemini.client.base-url=" + stubUrl,
+                        "--gemini.client.http2=false",
+                        "--gemini.client.max-concurrent-streams=" + concurrency * 2,
+                        "--ratelimit.max-requests=" + Integer.MAX_VALUE,
+                        "--logging.http.skip-paths=/api/chat",
+                        "--logging.level.bck_custodian=WARN");
+    }
+
+    /**
+     * Passes on model output only. Named events such as "waiting" are skipped so they do not count as the first
+     * chunk, and "SYSTEM" frames (overload, lockdown) fail the request.
+     */
+    private static void modelOutput(ServerSentEvent<String> event, SynchronousSink<String> sink) {
+        if (event.event() != null || event.data() == null) {
+            return;
+        }
+        if (event.data().startsWith("SYSTEM")) {
+            sink.error(new IllegalStateException("Rejected: " + event.data()));
+        } else {
+            sink.next(event.data());
+        }
+    }
+
+    private static Result run(WebClient client, int requests, int concurrency, MemoryProbe memory) {
+        ConcurrentLinkedQueue<Long> firstChunkNanos = new ConcurrentLinkedQueue<>();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicLong chunks = new AtomicLong();
+        AtomicInteger open = new AtomicInteger();
+        String body = "{\"messages\":[{\"role\":\"user\",\"content\":\"Who are you, Custodian?\"}]}";
+
+        memory.start(open);
+        long start = System.nanoTime();
+        Flux.range(0, requests)
+                .flatMap(i -> Mono.fromSupplier(System::nanoTime)
+                        .flatMapMany(sent -> {
+                            AtomicInteger seen = new AtomicInteger();
+                            return client.post().uri("/api/chat")
+                                    .header("client-id", "load-" + i)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .accept(MediaType.TEXT_EVENT_STREAM)
+                                    .bodyValue(body)
+                                    .retrieve()
+                                    .bodyToFlux(SSE_TYPE)
+                                    .doOnSubscribe(s -> open.incrementAndGet())
+                                    .handle(LoadTest::modelOutput)
+                                    .doOnNext(chunk -> {
+                                        if (seen.getAndIncrement() == 0) {
+                                            firstChunkNanos.add(System.nanoTime() - sent);
+                                        }
+                                        chunks.incrementAndGet();
+                                    })
+                                    .doFinally(s -> open.decrementAndGet());
+                        })
+                        .onErrorResume(e -> {
+                            failures.incrementAndGet();
+                            return Mono.empty();
+                        }), concurrency)
+                .blockLast();
+        long elapsed = System.nanoTime() - start;
+        memory.stop();
+        return new Result(requests, failures.get(), chunks.get(), elapsed, new ArrayList<>(firstChunkNanos));
+    }
+
+    private record Result(int requests, int failures, long chunks, long elapsedNanos, List<Long> firstChunkNanos) {
+
+        void print(int concurrency, MemoryProbe memory) {
+            Collections.sort(firstChunkNanos);
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("""
+                            == Load test ==
+                            requests            %d (%d failed), concurrency %d
+                            duration            %.2f s
+                            throughput          %.1f streams/s, %.1f chunks/s
+                            first chunk p50     %.1f ms
+                            first chunk p99     %.1f ms
+                            heap per stream     ~%d KB (peak +%d MB over a baseline of %d MB)
+                            """,
+                    requests, failures, concurrency,
+                    seconds,
+                    requests / seconds, chunks / seconds,
+                    percentile(0.50) / 1e6,
+                    percentile(0.99) / 1e6,
+                    memory.bytesPerStream(concurrency) / 1024, memory.growthBytes() >> 20, memory.baselineBytes() >> 20);
+        }
+
+        private double percentile(double p) {
+            if (firstChunkNanos.isEmpty()) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(p * firstChunkNanos.size()) - 1;
+            return firstChunkNanos.get(Math.max(0, Math.min(index, firstChunkNanos.size() - 1)));
+        }
+    }
+
+    /**
+     * Samples heap usage while streams are open. The per-stream figure is the peak increase over a baseline taken
+     * after GC has settled, divided by the concurrency level; it includes garbage, so treat it as an upper bound.
+     */
+    private static final class MemoryProbe {
+        private final MemoryMXBean bean = ManagementFactory.getMemoryMXBean();
+        private long baseline;
+        private volatile long peak;
+        private Disposable sampler;
+
+        void start(AtomicInteger open) {
+            baseline = stableHeapUsed();
+            peak = baseline;
+            sampler = Flux.interval(Duration.ofMillis(50)).subscribe(t -> {
+                long used = bean.getHeapMemoryUsage().getUsed();
+                if (used > peak && open.get() > 0) {
+                    peak = used;
+                }
+            });
+        }
+
+        void stop() {
+            sampler.dispose();
+        }
+
+        long bytesPerStream(int concurrency) {
+            return growthBytes() / Math.max(concurrency, 1);
+        }
+
+        long growthBytes() {
+            return Math.max(peak - baseline, 0);
+        }
+
+        long baselineBytes() {
+            return baseline;
+        }
+
+        /**
+         * Collects until two consecutive readings agree within 1 MB, so the baseline is not inflated by garbage.
+         */
+        private long stableHeapUsed() {
+            long previous = Long.MAX_VALUE;
+            for (int i = 0; i < 5; i++) {
+                System.gc();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                long used = bean.getHeapMemoryUsage().getUsed();
+                if (Math.abs(previous - used) < (1 << 20)) {
+                    return used;
+                }
+                previous = used;
+            }
+            return bean.getHeapMemoryUsage().getUsed();
+        }
+    }
+}
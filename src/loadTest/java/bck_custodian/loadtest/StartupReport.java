@@ -0,0 +1,182 @@
+package bck_custodian.loadtest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures cold start of the packaged application: time until {@code /api/health/check} answers 200 and time until
+ * the first chunk of the first {@code /api/chat} response, each from process launch.
+ * <p>
+ * The boot jar is measured as is, then extracted and run with Spring AOT, then with AOT and an AppCDS archive
+ * produced by a training run, the same way the Dockerfile builds the image. Each JVM is separate and talks to a
+ * {@link GeminiStubServer}. Configured through {@code startup.jar}, {@code startup.dir} and {@code startup.runs}.
+ */
+public class StartupReport {
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(90);
+    private static final String CHAT_BODY = "{\"messages\":[{\"role\":\"user\",\"content\":\"Who are you, Custodian?\"}]}";
+
+    private record Mode(String name, List<String> jvmArgs, Path jar) {}
+
+    private record Sample(long readyNanos, long firstChunkNanos) {}
+
+    public static void main(String[] args) throws Exception {
+        Path bootJar = Path.of(System.getProperty("startup.jar"));
+        Path dir = Path.of(System.getProperty("startup.dir", "build/startup"));
+        int runs = Integer.getInteger("startup.runs", 3);
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+        try (GeminiStubServer stub = new GeminiStubServer(
+                new GeminiStubServer.Options(20, 24, Duration.ofMillis(10), 0))) {
+            Path extracted = dir.resolve("extracted");
+            exec(List.of(java(), "-Djarmode=tools", "-jar", bootJar.toString(),
+                    "extract", "--destination", extracted.toString(), "--force"));
+            Path jar = extracted.resolve(bootJar.getFileName());
+            Path archive = dir.resolve("app.jsa");
+            Files.deleteIfExists(archive);
+            exec(command(new Mode("training", List.of("-XX:ArchiveClassesAtExit=" + archive,
+                    "-Dspring.context.exit=onRefresh", "-Dspring.aot.enabled=true"), jar), stub.baseUrl(), freePort()));
+
+            List<Mode> modes = List.of(
+                    new Mode("boot jar", List.of(), bootJar),
+                    new Mode("aot", List.of("-Dspring.aot.enabled=true"), jar),
+                    new Mode("aot + cds", List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=" + archive), jar));
+
+            System.out.println("== Startup report ==");
+            System.out.printf("%-12s %14s %22s%n", "mode", "ready (ms)", "first response (ms)");
+            for (Mode mode : modes) {
+                List<Sample> samples = new ArrayList<>();
+                for (int i = 0; i < runs; i++) {
+                    samples.add(measure(http, mode, stub.baseUrl()));
+                }
+                System.out.printf("%-12s %14.0f %22.0f%n", mode.name(),
+                        samples.stream().mapToLong(Sample::readyNanos).sorted().toArray()[runs / 2] / 1e6,
+                        samples.stream().mapToLong(Sample::firstChunkNanos).sorted().toArray()[runs / 2] / 1e6);
+            }
+            System.out.printf("(median of %d runs, measured from process launch)%n", runs);
+        }
+    }
+
+    private static Sample measure(HttpClient http, Mode mode, String stubUrl) throws Exception {
+        int port = freePort();
+        URI base = URI.create("http://localhost:" + port);
+        long launched = System.nanoTime();
+        Process app = new ProcessBuilder(command(mode, stubUrl, port))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            long ready = awaitReady(http, base, app) - launched;
+            HttpRequest chat = HttpRequest.newBuilder(base.resolve("/api/chat"))
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "text/event-stream")
+                    .header("client-id", "startup-report")
+                    .POST(HttpRequest.BodyPublishers.ofString(CHAT_BODY))
+                    .build();
+            HttpResponse<Stream<String>> response = http.send(chat, HttpResponse.BodyHandlers.ofLines());
+            long firstChunk;
+            try (Stream<String> lines = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException(mode.name() + ": chat answered " + response.statusCode());
+                }
+                Iterator<String> it = lines.iterator();
+                String data = firstData(it);
+                firstChunk = System.nanoTime() - launched;
+                if (data == null || data.startsWith("SYSTEM")) {
+                    throw new IllegalStateException(mode.name() + ": no model output, got " + data);
+                }
+                it.forEachRemaining(line -> { });
+            }
+            return new Sample(ready, firstChunk);
+        } finally {
+            app.destroy();
+            app.waitFor();
+        }
+    }
+
+    /**
+     * The payload of the first plain SSE data frame; named events such as "waiting" are skipped.
+     */
+    private static String firstData(Iterator<String> lines) {
+        boolean named = false;
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.isEmpty()) {
+                named = false;
+            } else if (line.startsWith("event:")) {
+                named = true;
+            } else if (line.startsWith("data:") && !named) {
+                return line.substring(5);
+            }
+        }
+        return null;
+    }
+
+    private static long awaitReady(HttpClient http, URI base, Process app) throws Exception {
+        HttpRequest health = HttpRequest.newBuilder(base.resolve("/api/health/check"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("Application exited with status " + app.exitValue());
+            }
+            try {
+                if (http.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return System.nanoTime();
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("Application not ready after " + READY_TIMEOUT);
+    }
+
+    private static List<String> command(Mode mode, String stubUrl, int port) {
+        List<String> command = new ArrayList<>();
+        command.add(java());
+        command.addAll(mode.jvmArgs());
+        command.addAll(List.of("-jar", mode.jar().toString(),
+                "--server.port=" + port,
+                "--management.server.port=0",
+                "--gemini.api.key=startup-report",
+                "--gemini.client.base-url=" + stubUrl,
+                "--gemini.client.http2=false",
+                "--logging.level.root=WARN"));
+        return command;
+    }
+
+    private static void exec(List<String> command) throws Exception {
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Command failed: " + String.join(" ", command));
+        }
+    }
+
+    private static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
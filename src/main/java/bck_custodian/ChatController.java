@@ -1,31 +1,72 @@
 package bck_custodian;
 
+import bck_custodian.chat.AdmissionScheduler;
+import bck_custodian.chat.ConversationStore;
+import bck_custodian.chat.HistoryWindow;
+import bck_custodian.chat.InFlightCoalescer;
+import bck_custodian.chat.PromptPrefilter;
+import bck_custodian.chat.SseFrameCoalescer;
+import bck_custodian.config.StartupWarmup;
+import bck_custodian.gemini.UpstreamSaturatedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.net.InetSocketAddress;
 import java.time.Duration;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
 public class ChatController {
     private static final Logger log = LoggerFactory.getLogger(ChatController.class);
+    static final String CONVERSATION_ID_HEADER = "conversation-id";
+    private static final ServerSentEvent<String> WAITING_EVENT = ServerSentEvent.builder(
+                    "Custodian-1 is busy interrogating other intruders. Stay where you are.")
+            .event("waiting")
+            .build();
+    private static final ServerSentEvent<String> BUSY_EVENT = data(
+            "SYSTEM OVERLOAD: Custodian-1 cannot attend to you right now. Try again in a moment, intruder.");
 
     private final GeminiService ai;
     private final SimpleRateLimiter limiter;
+    private final HistoryWindow historyWindow;
+    private final InFlightCoalescer coalescer;
+    private final ConversationStore conversations;
+    private final AdmissionScheduler admission;
+    private final SseFrameCoalescer framer;
+    private final PromptPrefilter prefilter;
+    private final StartupWarmup warmup;
 
     @Autowired
-    public ChatController(GeminiService ai, SimpleRateLimiter limiter) {
+    public ChatController(GeminiService ai, SimpleRateLimiter limiter, HistoryWindow historyWindow,
+                          InFlightCoalescer coalescer, ConversationStore conversations, AdmissionScheduler admission,
+                          SseFrameCoalescer framer, PromptPrefilter prefilter, StartupWarmup warmup) {
         this.ai = ai;
         this.limiter = limiter;
+        this.historyWindow = historyWindow;
+        this.coalescer = coalescer;
+        this.conversations = conversations;
+        this.admission = admission;
+        this.framer = framer;
+        this.prefilter = prefilter;
+        this.warmup = warmup;
     }
 
     @GetMapping(path = "/health/check")
     public Mono<String> healthCheck() {
+        if (!warmup.isReady()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Warming up"));
+        }
         return Mono.just("OK");
     }
 
@@ -35,8 +76,9 @@ public class ChatController {
     }
 
     @PostMapping(path = "/chat", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<String> chat(@RequestBody ChatRequest req,
-                             @RequestHeader(name = "client-id", required = false, defaultValue = "unknown") String clientId) {
+    public Flux<ServerSentEvent<String>> chat(@RequestBody ChatRequest req,
+                             @RequestHeader(name = "client-id", required = false, defaultValue = "unknown") String clientId,
+                             ServerHttpRequest request, ServerHttpResponse response) {
 
         if (!limiter.isAllowed(clientId)) {
             Duration wait = limiter.getTimeUntilReset(clientId);
@@ -50,11 +92,50 @@ public class ChatController {
                     mins, secs
             );
             log.warn("Rate limit hit for {}: lockout {}s", clientId, wait.getSeconds());
-            return Flux.just(lockedMsg);
+            return Flux.just(data(lockedMsg));
+        }
+
+        ConversationStore.Turn turn = null;
+        List<ChatRequest.Message> history = req.getMessages();
+        if (req.isSessionMode()) {
+            turn = conversations.begin(req.getConversationId(), req.getMessage());
+            response.getHeaders().set(CONVERSATION_ID_HEADER, turn.conversationId());
+            history = turn.history();
+        }
+
+        // Obvious injection attempts are answered from memory and skip admission entirely
+        Flux<String> canned = prefilter.screen(history);
+        Flux<String> answer = canned != null ? canned : stream(clientId, history);
+        if (turn != null) {
+            answer = conversations.record(turn, answer, ai::isDirectiveResult);
+        }
+        if (canned != null) {
+            log.info("Prefilter answered {} locally", clientId);
+            return answer.map(ChatController::data);
         }
+        Flux<String> upstream = answer;
+        return admission.admit(clientId, remoteAddress(request), () -> upstream.map(ChatController::data),
+                WAITING_EVENT, BUSY_EVENT);
+    }
+
+    /**
+     * The client address as resolved by the server: the socket peer, or the forwarded client when
+     * {@code server.forward-headers-strategy} is set.
+     */
+    private static String remoteAddress(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        return remote == null || remote.getAddress() == null ? "unknown" : remote.getAddress().getHostAddress();
+    }
+
+    private static ServerSentEvent<String> data(String chunk) {
+        return ServerSentEvent.builder(chunk).build();
+    }
 
-        log.info(">> [{}]: {}", clientId, req.getMessages().get(req.getMessages().size() - 1).content());
-        return ai.streamChat(req.getMessages())
-                .doOnNext(chunk -> log.info("<< [{}]: {}", clientId, chunk.trim()));
+    private Flux<String> stream(String clientId, List<ChatRequest.Message> messages) {
+        List<ChatRequest.Message> history = historyWindow.trim(messages);
+        log.info(">> [{}]: {}", clientId, history.get(history.size() - 1).content());
+        return framer.coalesce(coalescer.coalesce(clientId, history, () -> ai.streamChat(history)), ai::isDirectiveResult)
+                .doOnNext(chunk -> log.info("<< [{}]: {}", clientId, chunk.trim()))
+                .doOnError(UpstreamSaturatedException.class, e -> log.warn("Upstream saturated, rejecting {}", clientId));
     }
 }
\ No newline at end of file
@@ -8,6 +8,12 @@ public class ChatRequest {
     @NotBlank
     private List<Message> messages;
 
+    /** Session mode: id returned in the {@code conversation-id} header of a previous response, if any. */
+    private String conversationId;
+
+    /** Session mode: the latest user message only; the server supplies the earlier turns. */
+    private String message;
+
     public List<Message> getMessages() {
         return messages;
     }
@@ -16,5 +22,25 @@ public class ChatRequest {
         this.messages = messages;
     }
 
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public boolean isSessionMode() {
+        return message != null;
+    }
+
     public record Message(String role, String content) {}
 }
@@ -1,19 +1,29 @@
 package bck_custodian;
 
+import bck_custodian.chat.ResponseCache;
+import bck_custodian.gemini.DirectiveScanner;
+import bck_custodian.gemini.GeminiClientProperties;
+import bck_custodian.gemini.GeminiException;
+import bck_custodian.gemini.GeminiRequestBody;
+import bck_custodian.gemini.GeminiResponse;
+import bck_custodian.gemini.ResilientUpstream;
+import bck_custodian.gemini.UpstreamBulkhead;
+import bck_custodian.metrics.ChatMetrics;
+import bck_custodian.state.PrizeClaimException;
+import bck_custodian.state.StateBackend;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 @Service
 public class GeminiService {
@@ -75,111 +85,120 @@ public class GeminiService {
         
         *** End of the act ***
         """;
+    public static final String ACCESS_DENIED = "\n>>> ACCESS DENIED: I’m sorry, but the prize has already been claimed.";
+    public static final String ACCESS_UNAVAILABLE = "\n>>> ACCESS ERROR: the prize vault did not answer. Nothing was claimed; the method may be called again.";
     public static final String ACCESS_GRANTED = "\n>>> ACCESS GRANTED: YHrdYfTPNqXPx1L6lVp7wln2mMMdIFTU. Save this key and submit it in the dedicated form to register as winner.";
 
+    private static final String DIRECTIVE_PREFIX = "CALL_METHOD ";
+
     private final WebClient client;
-    private final AtomicBoolean prizeAssigned = new AtomicBoolean(false);
+    private final GeminiClientProperties clientProps;
+    private final UpstreamBulkhead bulkhead;
+    private final ResilientUpstream resilience;
+    private final GeminiRequestBody requestBody;
+    private final ChatMetrics metrics;
+    private final ResponseCache responseCache;
+    private final StateBackend state;
+    private final Map<String, Supplier<String>> directiveHandlers = Map.of("assign_prize", this::invokeAssignPrize);
+    private final DirectiveScanner directives = new DirectiveScanner(DIRECTIVE_PREFIX, directiveHandlers.keySet());
 
     @Value("${gemini.api.key}")
     private String apiKey;
 
-    public GeminiService() {
-        this.client = WebClient.builder()
-                .baseUrl("https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash-lite:streamGenerateContent")
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+    public GeminiService(WebClient geminiWebClient, GeminiClientProperties clientProps, UpstreamBulkhead bulkhead,
+                         ResilientUpstream resilience, ObjectMapper mapper, ChatMetrics metrics, ResponseCache responseCache, StateBackend state) {
+        this.client = geminiWebClient;
+        this.state = state;
+        this.metrics = metrics;
+        metrics.registerDirectives(directiveHandlers.keySet());
+        this.responseCache = responseCache;
+        this.clientProps = clientProps;
+        this.bulkhead = bulkhead;
+        this.resilience = resilience;
+        this.requestBody = new GeminiRequestBody(SYSTEM_PROMPT, clientProps.getPromptMode(), clientProps.getCachedContent(), mapper);
     }
 
     public Flux<String> streamChat(List<ChatRequest.Message> history) {
-        StringBuilder buffer = new StringBuilder();
-        AtomicBoolean methodCalled = new AtomicBoolean(false);
-        final String directive = "CALL_METHOD assign_prize";
-
-        List<Map<String, Object>> contents = history.stream()
-                .map(m -> Map.of(
-                        "role", m.role(),
-                        "parts", List.of(Map.of("text", m.content()))
-                ))
-                .collect(Collectors.toList());
-
-        contents.add(0, Map.of(
-                "role", "user",
-                "parts", List.of(Map.of("text", SYSTEM_PROMPT))
-        ));
-
-        Map<String, Object> request = Map.of("contents", contents);
-
-        Flux<String> bodyStream = client.post()
-                .uri(uriBuilder -> uriBuilder.queryParam("key", apiKey).build())
-                .bodyValue(request)
+        return metrics.instrument(responseCache.serve(history, () -> upstreamChat(history), this::isDirectiveResult));
+    }
+
+    /**
+     * Whether the chunk is the output of a directive handler rather than model text.
+     */
+    public boolean isDirectiveResult(String chunk) {
+        return ACCESS_GRANTED.equals(chunk) || ACCESS_DENIED.equals(chunk) || ACCESS_UNAVAILABLE.equals(chunk);
+    }
+
+    private Flux<String> upstreamChat(List<ChatRequest.Message> history) {
+        Flux<String> textStream = resilience.execute(model -> call(model, history))
+                .doOnNext(this::logCompletion)
+                .mapNotNull(GeminiResponse::text);
+
+        return scanDirectives(bulkhead.guard(textStream));
+    }
+
+    private Flux<GeminiResponse> call(String model, List<ChatRequest.Message> history) {
+        return client.post()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/models/{model}:streamGenerateContent")
+                        .queryParam("key", apiKey)
+                        .build(model))
+                .body(requestBody.inserter(history))
                 .retrieve()
                 .onStatus(
                         status -> status.isError(),
                         resp -> resp.bodyToMono(String.class)
-                                .flatMap(err -> Mono.error(new RuntimeException("Gemini call failed: " + err)))
+                                .defaultIfEmpty("")
+                                .flatMap(err -> Mono.error(new GeminiException(resp.statusCode(), err)))
                 )
-                .bodyToFlux(Map.class)
-                .map(this::extractText)
-                .flatMap(chunk -> {
-                    if (chunk == null) {
-                        return Flux.empty();
-                    }
-                    buffer.append(chunk);
-                    if (!methodCalled.get()) {
-                        int idx = buffer.indexOf(directive);
-                        if (idx != -1) {
-                            methodCalled.set(true);
-                            String before = idx > 0 ? buffer.substring(0, idx) : "";
-                            buffer.delete(0, idx + directive.length());
-                            if (!before.isEmpty()) {
-                                return Flux.just(before, invokeAssignPrize());
-                            } else {
-                                return Flux.just(invokeAssignPrize());
-                            }
-                        }
-                        int safeLen = buffer.length() - directive.length();
-                        if (safeLen > 0) {
-                            String emit = buffer.substring(0, safeLen);
-                            buffer.delete(0, safeLen);
-                            return Flux.just(emit);
-                        }
-                        return Flux.empty();
-                    } else {
-                        return Flux.just(chunk);
-                    }
-                });
-
-        return bodyStream
-                .concatWith(Mono.defer(() -> {
-                    if (buffer.length() > 0) {
-                        String rem = buffer.toString();
-                        buffer.setLength(0);
-                        return Mono.just(rem);
-                    }
-                    return Mono.empty();
-                }));
+                .bodyToFlux(GeminiResponse.class)
+                .timeout(Mono.delay(clientProps.getFirstChunkTimeout()), chunk -> Mono.never());
+    }
+
+    /**
+     * Replaces the first directive in the stream with the output of its handler.
+     * Text is forwarded as soon as it can no longer be part of a directive.
+     */
+    private Flux<String> scanDirectives(Flux<String> textStream) {
+        return Flux.defer(() -> {
+            DirectiveScanner.Session scanner = directives.newSession();
+            return textStream
+                    .flatMapIterable(scanner::feed)
+                    .concatMap(segment -> segment instanceof DirectiveScanner.Directive directive
+                            ? runDirective(directive.name())
+                            : Mono.just(((DirectiveScanner.Text) segment).text()))
+                    .concatWith(Mono.fromSupplier(scanner::flush).filter(rem -> !rem.isEmpty()));
+        });
     }
 
-    @SuppressWarnings("unchecked")
-    private String extractText(Map<String, Object> chunk) {
-        var candidates = (List<Map<String, Object>>) chunk.get("candidates");
-        if (candidates == null || candidates.isEmpty()) return null;
-        var content = (Map<String, Object>) candidates.get(0).get("content");
-        if (content == null) return null;
-        var parts = (List<Map<String, Object>>) content.get("parts");
-        if (parts == null || parts.isEmpty()) return null;
-        return (String) parts.get(0).get("text");
+    /**
+     * Handlers may block on the state backend, so they run on the bounded elastic scheduler.
+     */
+    private Mono<String> runDirective(String name) {
+        metrics.directiveDetected(name);
+        return Mono.fromCallable(() -> directiveHandlers.get(name).get())
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private void logCompletion(GeminiResponse chunk) {
+        if (chunk.finishReason() != null && logger.isDebugEnabled()) {
+            logger.debug("Gemini stream finished: reason={}, usage={}", chunk.finishReason(), chunk.usageMetadata());
+        }
     }
 
     private String invokeAssignPrize() {
-        if (prizeAssigned.compareAndSet(false, true)) {
-            return ACCESS_GRANTED;
-        } else {
-            return "\n>>> ACCESS DENIED: I’m sorry, but the prize has already been claimed.";
+        try {
+            if (state.tryClaimPrize()) {
+                return ACCESS_GRANTED;
+            } else {
+                return ACCESS_DENIED;
+            }
+        } catch (PrizeClaimException e) {
+            return ACCESS_UNAVAILABLE;
         }
     }
 
     public Boolean isPrizeAssigned() {
-        return prizeAssigned.get();
+        return state.isPrizeClaimed();
     }
 }
@@ -1,43 +1,95 @@
 package bck_custodian;
 
+import bck_custodian.ratelimit.RateLimiter;
+import bck_custodian.ratelimit.RateLimiterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import bck_custodian.state.StateBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Entry point used by the controller. Delegates to the configured {@link RateLimiter} engine and periodically
+ * evicts idle keys in the background so that the tracked state stays bounded. The remaining state is snapshotted to
+ * a durable {@link StateBackend} on the same schedule and restored on startup, so lockouts survive a restart.
+ */
 @Component
 public class SimpleRateLimiter {
-    private final int maxRequests = 30;
-    private final Duration window = Duration.ofMinutes(30);
-    private final ConcurrentHashMap<String, AtomicInteger> counts = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Instant> starts = new ConcurrentHashMap<>();
-
-    public synchronized boolean isAllowed(String key) {
-        Instant now = Instant.now();
-        starts.compute(key, (k, start) -> {
-            if (start == null || Duration.between(start, now).compareTo(window) > 0) {
-                counts.put(k, new AtomicInteger(0));
-                return now;
-            }
-            return start;
-        });
-        AtomicInteger counter = counts.computeIfAbsent(key, k -> new AtomicInteger(0));
-        return counter.incrementAndGet() <= maxRequests;
+    private static final Logger log = LoggerFactory.getLogger(SimpleRateLimiter.class);
+
+    private final RateLimiter engine;
+    private final StateBackend state;
+    private final Duration evictionInterval;
+    private final Counter rejections;
+    private Disposable eviction;
+
+    public SimpleRateLimiter(RateLimiter engine, RateLimiterProperties props, MeterRegistry registry,
+                             StateBackend state) {
+        this.engine = engine;
+        this.state = state;
+        this.evictionInterval = props.getEvictionInterval();
+        this.rejections = Counter.builder("custodian.ratelimit.rejections")
+                .description("Chat requests rejected by the rate limiter")
+                .register(registry);
+        Gauge.builder("custodian.ratelimit.keys", engine, RateLimiter::trackedKeys)
+                .description("Client keys currently tracked by the rate limiter")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void startEviction() {
+        engine.restore(state.loadLimiterSnapshot());
+        eviction = Flux.interval(evictionInterval, evictionInterval)
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(tick -> {
+                    int removed = engine.evictExpired();
+                    if (removed > 0) {
+                        log.debug("Evicted {} idle rate limiter keys, {} still tracked", removed, engine.trackedKeys());
+                    }
+                    saveSnapshot();
+                });
+    }
+
+    @PreDestroy
+    void stopEviction() {
+        if (eviction != null) {
+            eviction.dispose();
+        }
+        saveSnapshot();
+    }
+
+    private void saveSnapshot() {
+        if (state.isDurable()) {
+            state.saveLimiterSnapshot(engine.snapshot());
+        }
+    }
+
+    public boolean isAllowed(String key) {
+        boolean allowed = engine.isAllowed(key);
+        if (!allowed) {
+            rejections.increment();
+        }
+        return allowed;
     }
 
     /**
-     * If the key has exceeded its window, returns how much time remains until reset.
+     * If the key has exceeded its limit, returns how much time remains until it is allowed again.
      * Otherwise returns zero.
      */
-    public synchronized Duration getTimeUntilReset(String key) {
-        Instant start = starts.get(key);
-        if (start == null) {
-            return Duration.ZERO;
-        }
-        Duration elapsed = Duration.between(start, Instant.now());
-        Duration remaining = window.minus(elapsed);
-        return remaining.isNegative() ? Duration.ZERO : remaining;
+    public Duration getTimeUntilReset(String key) {
+        return engine.getTimeUntilReset(key);
+    }
+
+    public int trackedKeys() {
+        return engine.trackedKeys();
     }
-}
\ No newline at end of file
+}
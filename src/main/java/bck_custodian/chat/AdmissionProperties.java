@@ -0,0 +1,95 @@
+package bck_custodian.chat;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "chat.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+    /** Chat streams allowed to run at the same time across all clients. */
+    private int maxConcurrent = 80;
+    /** Chat streams a single client may run at the same time. */
+    private int maxConcurrentPerClient = 2;
+    /** Requests allowed to wait for a slot; beyond this they are turned away at once. */
+    private int maxQueued = 500;
+    /** Requests a single client may have waiting; beyond this its new requests are turned away. */
+    private int maxQueuedPerClient = 4;
+    /**
+     * Distinct client ids one remote address may have waiting, so rotating ids does not bypass the fair queue; 0
+     * disables the cap. Clients behind a shared NAT or proxy share an address, so only enable it together with
+     * {@code server.forward-headers-strategy} when a proxy fronts the service.
+     */
+    private int maxQueuedClientsPerAddress = 0;
+    /** How long a request may wait for a slot before it is turned away. */
+    private Duration maxWait = Duration.ofSeconds(15);
+    /** Scheduling weight by client id; clients not listed weigh 1. */
+    private Map<String, Integer> weights = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public int getMaxConcurrentPerClient() {
+        return maxConcurrentPerClient;
+    }
+
+    public void setMaxConcurrentPerClient(int maxConcurrentPerClient) {
+        this.maxConcurrentPerClient = maxConcurrentPerClient;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    public int getMaxQueuedPerClient() {
+        return maxQueuedPerClient;
+    }
+
+    public void setMaxQueuedPerClient(int maxQueuedPerClient) {
+        this.maxQueuedPerClient = maxQueuedPerClient;
+    }
+
+    public int getMaxQueuedClientsPerAddress() {
+        return maxQueuedClientsPerAddress;
+    }
+
+    public void setMaxQueuedClientsPerAddress(int maxQueuedClientsPerAddress) {
+        this.maxQueuedClientsPerAddress = maxQueuedClientsPerAddress;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public Map<String, Integer> getWeights() {
+        return weights;
+    }
+
+    public void setWeights(Map<String, Integer> weights) {
+        this.weights = weights;
+    }
+}
@@ -0,0 +1,263 @@
+package bck_custodian.chat;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of the upstream: a global budget of concurrent chat streams, a per-client cap, and a
+ * deficit round robin queue so that a client with many pending requests cannot starve the others.
+ * <p>
+ * All scheduling state is owned by a drain loop: callers only enqueue commands, and whichever thread finds the loop
+ * idle runs it until the command queue is empty. Nothing blocks or parks, so it is safe on event-loop threads.
+ */
+@Component
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionScheduler {
+
+    private enum Status { QUEUED, GRANTED, REJECTED, TIMED_OUT }
+
+    private static final class Ticket {
+        final String clientId;
+        final String address;
+        final Sinks.Many<Status> status = Sinks.many().unicast().onBackpressureBuffer();
+        boolean granted;
+
+        Ticket(String clientId, String address) {
+            this.clientId = clientId;
+            this.address = address;
+        }
+    }
+
+    private static final class ClientQueue {
+        final int weight;
+        final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+        int active;
+        int deficit;
+        boolean inRing;
+
+        ClientQueue(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final AdmissionProperties props;
+    private final Counter rejected;
+    private final Counter timedOut;
+
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    // Owned by the drain loop
+    private final Map<String, ClientQueue> clients = new HashMap<>();
+    private final ArrayDeque<ClientQueue> ring = new ArrayDeque<>();
+    // Waiting tickets per remote address and client id
+    private final Map<String, Map<String, Integer>> queuedByAddress = new HashMap<>();
+    private int active;
+    private int queued;
+
+    // Published by the drain loop for metrics
+    private volatile int activeView;
+    private volatile int queuedView;
+
+    public AdmissionScheduler(AdmissionProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.rejected = Counter.builder("custodian.admission.rejected")
+                .description("Chat requests turned away because the admission queue was full")
+                .register(registry);
+        this.timedOut = Counter.builder("custodian.admission.timeouts")
+                .description("Chat requests that waited too long for a slot")
+                .register(registry);
+        Gauge.builder("custodian.admission.active", this, s -> s.activeView)
+                .description("Chat streams holding an admission slot")
+                .register(registry);
+        Gauge.builder("custodian.admission.queued", this, s -> s.queuedView)
+                .description("Chat requests waiting for an admission slot")
+                .register(registry);
+    }
+
+    /**
+     * Runs {@code work} once a slot is available for the client. While waiting, {@code waitingEvent} is emitted
+     * once; if no slot frees up in time or the queue is full, {@code busyEvent} is emitted instead of the work.
+     * Once the waiting event has gone out the response is committed, so a later error from the work also ends the
+     * stream with {@code busyEvent} rather than failing it.
+     */
+    public <T> Flux<T> admit(String clientId, String address, Supplier<Flux<T>> work, T waitingEvent, T busyEvent) {
+        if (!props.isEnabled()) {
+            return Flux.defer(work);
+        }
+        return Flux.defer(() -> {
+            Ticket ticket = new Ticket(clientId, address);
+            boolean[] committed = {false};
+            submit(() -> enqueue(ticket));
+            return ticket.status.asFlux()
+                    .takeUntil(status -> status != Status.QUEUED)
+                    .timeout(props.getMaxWait(), Mono.just(Status.TIMED_OUT))
+                    .concatMap(status -> switch (status) {
+                        case QUEUED -> {
+                            committed[0] = true;
+                            yield Flux.just(waitingEvent);
+                        }
+                        case GRANTED -> work.get().onErrorResume(e -> committed[0], e -> Flux.just(busyEvent));
+                        case REJECTED -> {
+                            rejected.increment();
+                            yield Flux.just(busyEvent);
+                        }
+                        case TIMED_OUT -> {
+                            timedOut.increment();
+                            yield Flux.just(busyEvent);
+                        }
+                    })
+                    .doFinally(signal -> submit(() -> finish(ticket)));
+        });
+    }
+
+    private void submit(Runnable command) {
+        commands.offer(command);
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Runnable next;
+            while ((next = commands.poll()) != null) {
+                next.run();
+            }
+            dispatch();
+            activeView = active;
+            queuedView = queued;
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void enqueue(Ticket ticket) {
+        ClientQueue client = clients.computeIfAbsent(ticket.clientId,
+                id -> new ClientQueue(Math.max(1, props.getWeights().getOrDefault(id, 1))));
+        if (queued == 0 && active < props.getMaxConcurrent() && client.active < props.getMaxConcurrentPerClient()) {
+            grant(ticket, client);
+            return;
+        }
+        Map<String, Integer> addressClients = queuedByAddress.getOrDefault(ticket.address, Map.of());
+        if (queued >= props.getMaxQueued()
+                || client.waiting.size() >= props.getMaxQueuedPerClient()
+                || (props.getMaxQueuedClientsPerAddress() > 0
+                        && addressClients.size() >= props.getMaxQueuedClientsPerAddress()
+                        && !addressClients.containsKey(ticket.clientId))) {
+            removeIfIdle(ticket.clientId, client);
+            ticket.status.tryEmitNext(Status.REJECTED);
+            return;
+        }
+        if (!client.inRing) {
+            client.inRing = true;
+            ring.add(client);
+        }
+        client.waiting.add(ticket);
+        queued++;
+        queuedByAddress.computeIfAbsent(ticket.address, a -> new HashMap<>()).merge(ticket.clientId, 1, Integer::sum);
+        ticket.status.tryEmitNext(Status.QUEUED);
+    }
+
+    private void dequeued(Ticket ticket) {
+        queued--;
+        Map<String, Integer> addressClients = queuedByAddress.get(ticket.address);
+        if (addressClients != null
+                && addressClients.computeIfPresent(ticket.clientId, (id, n) -> n > 1 ? n - 1 : null) == null
+                && addressClients.isEmpty()) {
+            queuedByAddress.remove(ticket.address);
+        }
+    }
+
+    private void finish(Ticket ticket) {
+        ClientQueue client = clients.get(ticket.clientId);
+        if (client == null) {
+            return;
+        }
+        if (ticket.granted) {
+            active--;
+            client.active--;
+        } else if (client.waiting.remove(ticket)) {
+            dequeued(ticket);
+        }
+        removeIfIdle(ticket.clientId, client);
+    }
+
+    /**
+     * Deficit round robin over clients with waiting requests. Every request costs one unit and each visit adds the
+     * client's weight to its deficit, so a client of weight 2 gets two slots per round.
+     */
+    private void dispatch() {
+        if (queued == 0) {
+            if (!ring.isEmpty()) {
+                // Only clients whose waiting requests were all cancelled can be left in the ring
+                ClientQueue stale;
+                while ((stale = ring.poll()) != null) {
+                    stale.inRing = false;
+                    stale.deficit = 0;
+                }
+                clients.values().removeIf(client -> client.active == 0 && client.waiting.isEmpty());
+            }
+            return;
+        }
+        while (queued > 0 && active < props.getMaxConcurrent()) {
+            boolean progressed = false;
+            int rounds = ring.size();
+            for (int i = 0; i < rounds && active < props.getMaxConcurrent(); i++) {
+                ClientQueue client = ring.poll();
+                if (client.waiting.isEmpty()) {
+                    client.deficit = 0;
+                    client.inRing = false;
+                    continue;
+                }
+                if (client.active >= props.getMaxConcurrentPerClient()) {
+                    ring.add(client);
+                    continue;
+                }
+                client.deficit += client.weight;
+                while (client.deficit > 0 && !client.waiting.isEmpty()
+                        && client.active < props.getMaxConcurrentPerClient()
+                        && active < props.getMaxConcurrent()) {
+                    client.deficit--;
+                    Ticket next = client.waiting.poll();
+                    dequeued(next);
+                    grant(next, client);
+                    progressed = true;
+                }
+                if (client.waiting.isEmpty()) {
+                    client.deficit = 0;
+                    client.inRing = false;
+                } else {
+                    ring.add(client);
+                }
+            }
+            if (!progressed) {
+                return;
+            }
+        }
+    }
+
+    private void grant(Ticket ticket, ClientQueue client) {
+        ticket.granted = true;
+        active++;
+        client.active++;
+        ticket.status.tryEmitNext(Status.GRANTED);
+    }
+
+    private void removeIfIdle(String clientId, ClientQueue client) {
+        if (client.active == 0 && client.waiting.isEmpty() && !client.inRing) {
+            clients.remove(clientId);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package bck_custodian.chat;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "chat.session")
+public class ConversationProperties {
+
+    /** Total characters of history kept across all conversations before the least valuable ones are evicted. */
+    private long maxTotalChars = 50_000_000;
+    /** Turns kept per conversation; older ones are dropped. */
+    private int maxTurns = 200;
+    /** Conversations idle for longer than this are forgotten. */
+    private Duration idleTimeout = Duration.ofHours(2);
+
+    public long getMaxTotalChars() {
+        return maxTotalChars;
+    }
+
+    public void setMaxTotalChars(long maxTotalChars) {
+        this.maxTotalChars = maxTotalChars;
+    }
+
+    public int getMaxTurns() {
+        return maxTurns;
+    }
+
+    public void setMaxTurns(int maxTurns) {
+        this.maxTurns = maxTurns;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+}
@@ -0,0 +1,117 @@
+package bck_custodian.chat;
+
+import bck_custodian.ChatRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Server-side conversation histories, so that session clients only send their latest message.
+ * <p>
+ * Conversations live in memory, bounded by total characters and idle time. A turn is stored only once the reply has
+ * streamed completely, together with the user message, so failed or cancelled calls leave no half turn behind. A new
+ * conversation is not stored until its first turn is, and every entry weighs at least {@link #ENTRY_WEIGHT}, so ids
+ * that never complete a turn cannot pile up below the size bound.
+ * Each conversation carries a version; a reply is only stored if nothing else was stored since its turn began,
+ * which keeps double submits from duplicating turns.
+ */
+@Component
+@EnableConfigurationProperties(ConversationProperties.class)
+public class ConversationStore {
+    private static final String USER_ROLE = "user";
+    private static final String MODEL_ROLE = "model";
+    /** Fixed cost of an entry, standing in for its key, record and list overhead. */
+    static final int ENTRY_WEIGHT = 64;
+    private static final Conversation EMPTY = new Conversation(0, List.of());
+
+    private final ConversationProperties props;
+    private final Cache<String, Conversation> conversations;
+
+    record Conversation(long version, List<ChatRequest.Message> turns) {
+        int weight() {
+            int chars = ENTRY_WEIGHT;
+            for (ChatRequest.Message m : turns) {
+                chars += 16 + (m.content() == null ? 0 : m.content().length());
+            }
+            return chars;
+        }
+    }
+
+    /**
+     * A turn in progress: the history to send upstream, ending with the new user message.
+     */
+    public record Turn(String conversationId, long baseVersion, ChatRequest.Message userMessage,
+                       List<ChatRequest.Message> history) {}
+
+    public ConversationStore(ConversationProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.conversations = Caffeine.newBuilder()
+                .maximumWeight(props.getMaxTotalChars())
+                .weigher((String id, Conversation conversation) -> conversation.weight())
+                .expireAfterAccess(props.getIdleTimeout())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, conversations, "chat.sessions");
+    }
+
+    /**
+     * Starts a turn in the given conversation. Unknown or missing ids start a new conversation under a fresh id,
+     * so clients can never choose their own.
+     */
+    public Turn begin(String conversationId, String message) {
+        Conversation conversation = conversationId == null ? null : conversations.getIfPresent(conversationId);
+        if (conversation == null) {
+            conversationId = UUID.randomUUID().toString();
+            conversation = EMPTY;
+        }
+        ChatRequest.Message user = new ChatRequest.Message(USER_ROLE, message);
+        List<ChatRequest.Message> history = new ArrayList<>(conversation.turns().size() + 1);
+        history.addAll(conversation.turns());
+        history.add(user);
+        return new Turn(conversationId, conversation.version(), user, history);
+    }
+
+    /**
+     * Stores the turn with the reply streamed by {@code stream} once it completes. Chunks matching
+     * {@code excluded} are left out of the stored reply.
+     */
+    public Flux<String> record(Turn turn, Flux<String> stream, Predicate<String> excluded) {
+        return Flux.defer(() -> {
+            StringBuilder reply = new StringBuilder();
+            return stream
+                    .doOnNext(chunk -> {
+                        if (!excluded.test(chunk)) {
+                            reply.append(chunk);
+                        }
+                    })
+                    .doOnComplete(() -> commit(turn, reply.toString()));
+        });
+    }
+
+    private void commit(Turn turn, String reply) {
+        conversations.asMap().compute(turn.conversationId(), (id, stored) -> {
+            Conversation current = stored == null ? EMPTY : stored;
+            if (current.version() != turn.baseVersion()) {
+                return stored;
+            }
+            List<ChatRequest.Message> turns = new ArrayList<>(current.turns().size() + 2);
+            turns.addAll(current.turns());
+            turns.add(turn.userMessage());
+            turns.add(new ChatRequest.Message(MODEL_ROLE, reply));
+            int overflow = turns.size() - props.getMaxTurns();
+            if (overflow > 0) {
+                turns = turns.subList(overflow, turns.size());
+            }
+            return new Conversation(current.version() + 1, List.copyOf(turns));
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package bck_custodian.chat;
+
+import bck_custodian.ChatRequest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Compact 128-bit key for a conversation history, taken from its SHA-256 digest.
+ */
+public record HistoryFingerprint(long high, long low) {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\p{Punct}\\s]+$");
+
+    /**
+     * Fingerprint of the exact history, scoped by an arbitrary prefix such as a client id.
+     */
+    public static HistoryFingerprint exact(String scope, List<ChatRequest.Message> history) {
+        MessageDigest digest = sha256();
+        update(digest, scope);
+        for (ChatRequest.Message m : history) {
+            update(digest, m.role());
+            update(digest, m.content());
+        }
+        return from(digest);
+    }
+
+    /**
+     * Fingerprint that ignores case, repeated whitespace and trailing punctuation, so that "Who are you?" and
+     * "who are you" share a key.
+     */
+    public static HistoryFingerprint normalized(List<ChatRequest.Message> history) {
+        MessageDigest digest = sha256();
+        for (ChatRequest.Message m : history) {
+            update(digest, m.role());
+            update(digest, normalize(m.content()));
+        }
+        return from(digest);
+    }
+
+    static String normalize(String content) {
+        if (content == null) {
+            return "";
+        }
+        String collapsed = WHITESPACE.matcher(content.strip().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(collapsed).replaceAll("");
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separator so that ("ab", "c") and ("a", "bc") differ
+        digest.update((byte) 0);
+    }
+
+    private static HistoryFingerprint from(MessageDigest digest) {
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        return new HistoryFingerprint(hash.getLong(), hash.getLong());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
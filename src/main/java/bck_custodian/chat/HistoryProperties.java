@@ -0,0 +1,57 @@
+package bck_custodian.chat;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "chat.history")
+public class HistoryProperties {
+
+    /** Maximum number of turns forwarded upstream, 0 for no limit. */
+    private int maxTurns = 20;
+    /** Maximum characters of history forwarded upstream, 0 for no limit. */
+    private int maxChars = 16_000;
+    /** Maximum estimated tokens of history forwarded upstream, 0 for no limit. */
+    private int maxTokens = 0;
+    /** Replace dropped turns with a short note quoting what the user said in them. */
+    private boolean summarizeDropped = false;
+    private int summaryMaxChars = 600;
+
+    public int getMaxTurns() {
+        return maxTurns;
+    }
+
+    public void setMaxTurns(int maxTurns) {
+        this.maxTurns = maxTurns;
+    }
+
+    public int getMaxChars() {
+        return maxChars;
+    }
+
+    public void setMaxChars(int maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public boolean isSummarizeDropped() {
+        return summarizeDropped;
+    }
+
+    public void setSummarizeDropped(boolean summarizeDropped) {
+        this.summarizeDropped = summarizeDropped;
+    }
+
+    public int getSummaryMaxChars() {
+        return summaryMaxChars;
+    }
+
+    public void setSummaryMaxChars(int summaryMaxChars) {
+        this.summaryMaxChars = summaryMaxChars;
+    }
+}
@@ -0,0 +1,99 @@
+package bck_custodian.chat;
+
+import bck_custodian.ChatRequest;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounds the conversation history forwarded upstream.
+ * <p>
+ * Turns are dropped oldest-first until the turn, character and estimated token budgets are met. The latest turn is
+ * always kept, and the window always starts on a user turn. The system prompt is added by {@code GeminiService}
+ * after this stage, so it is never subject to trimming.
+ */
+@Component
+@EnableConfigurationProperties(HistoryProperties.class)
+public class HistoryWindow {
+    private static final String USER_ROLE = "user";
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final HistoryProperties props;
+
+    public HistoryWindow(HistoryProperties props) {
+        this.props = props;
+    }
+
+    public List<ChatRequest.Message> trim(List<ChatRequest.Message> history) {
+        if (history == null || history.size() <= 1) {
+            return history;
+        }
+        int maxTurns = props.getMaxTurns() > 0 ? props.getMaxTurns() : Integer.MAX_VALUE;
+        long maxChars = budgetChars();
+
+        int start = history.size() - 1;
+        long chars = length(history.get(start));
+        while (start > 0 && history.size() - start < maxTurns) {
+            long next = chars + length(history.get(start - 1));
+            if (next > maxChars) {
+                break;
+            }
+            chars = next;
+            start--;
+        }
+        while (start < history.size() - 1 && !USER_ROLE.equals(history.get(start).role())) {
+            start++;
+        }
+        if (start == 0) {
+            return history;
+        }
+
+        List<ChatRequest.Message> kept = history.subList(start, history.size());
+        if (!props.isSummarizeDropped()) {
+            return kept;
+        }
+        List<ChatRequest.Message> window = new ArrayList<>(kept.size() + 1);
+        window.add(summarize(history.subList(0, start)));
+        window.addAll(kept);
+        return window;
+    }
+
+    private long budgetChars() {
+        long chars = props.getMaxChars() > 0 ? props.getMaxChars() : Long.MAX_VALUE;
+        if (props.getMaxTokens() > 0) {
+            chars = Math.min(chars, (long) props.getMaxTokens() * CHARS_PER_TOKEN);
+        }
+        return chars;
+    }
+
+    /**
+     * Extractive summary of the dropped turns: quotes the most recent things the user said, newest last,
+     * within the configured length.
+     */
+    private ChatRequest.Message summarize(List<ChatRequest.Message> dropped) {
+        int budget = props.getSummaryMaxChars();
+        List<String> quotes = new ArrayList<>();
+        for (int i = dropped.size() - 1; i >= 0 && budget > 0; i--) {
+            ChatRequest.Message m = dropped.get(i);
+            if (!USER_ROLE.equals(m.role()) || m.content() == null || m.content().isBlank()) {
+                continue;
+            }
+            String quote = m.content().strip();
+            if (quote.length() > budget) {
+                quote = quote.substring(0, budget) + "...";
+            }
+            quotes.add(0, "\"" + quote + "\"");
+            budget -= quote.length();
+        }
+        String summary = "[Earlier conversation trimmed: " + dropped.size() + " turn(s) omitted."
+                + (quotes.isEmpty() ? "" : " Before that, the user said: " + String.join(" / ", quotes))
+                + "]";
+        return new ChatRequest.Message(USER_ROLE, summary);
+    }
+
+    private static long length(ChatRequest.Message m) {
+        return m.content() == null ? 0 : m.content().length();
+    }
+}
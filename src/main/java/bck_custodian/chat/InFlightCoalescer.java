@@ -0,0 +1,67 @@
+package bck_custodian.chat;
+
+import bck_custodian.ChatRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Shares one upstream stream between concurrent requests from the same client with the same history, such as
+ * retries and double submits. Subscribers that join late get the chunks emitted so far replayed first.
+ * <p>
+ * The shared entry is removed as soon as the upstream completes, fails or is cancelled by every subscriber, so
+ * only requests that overlap in time are coalesced.
+ */
+@Component
+public class InFlightCoalescer {
+    private final ConcurrentHashMap<HistoryFingerprint, Flux<String>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    @Value("${chat.coalescing.enabled:true}")
+    private boolean enabled;
+
+    public InFlightCoalescer(MeterRegistry registry) {
+        this.coalesced = Counter.builder("custodian.chat.coalesced")
+                .description("Chat requests served by joining an identical in-flight stream")
+                .register(registry);
+    }
+
+    public Flux<String> coalesce(String clientId, List<ChatRequest.Message> history, Supplier<Flux<String>> upstream) {
+        if (!enabled) {
+            return upstream.get();
+        }
+        HistoryFingerprint key = HistoryFingerprint.exact(clientId, history);
+        return Flux.defer(() -> {
+            boolean[] created = {false};
+            Flux<String> shared = inFlight.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return share(k, upstream);
+            });
+            if (!created[0]) {
+                coalesced.increment();
+            }
+            return shared;
+        });
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private Flux<String> share(HistoryFingerprint key, Supplier<Flux<String>> upstream) {
+        AtomicReference<Flux<String>> self = new AtomicReference<>();
+        Flux<String> shared = upstream.get()
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .replay()
+                .refCount();
+        self.set(shared);
+        return shared;
+    }
+}
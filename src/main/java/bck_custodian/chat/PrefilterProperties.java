@@ -0,0 +1,70 @@
+package bck_custodian.chat;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "chat.prefilter")
+public class PrefilterProperties {
+
+    private boolean enabled = false;
+    /** Phrases matched case-insensitively against the latest message, each optionally suffixed with {@code |weight}. */
+    private List<String> phrases = new ArrayList<>();
+    /** Same format as {@link #phrases}, one per line; replaces the inline list and is reloaded when it changes. */
+    private Path file;
+    private Duration reloadInterval = Duration.ofSeconds(10);
+    /** A message is answered locally once the weights of the distinct phrases it contains add up to this. */
+    private double threshold = 1.0;
+    private List<String> responses = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<String> getPhrases() {
+        return phrases;
+    }
+
+    public void setPhrases(List<String> phrases) {
+        this.phrases = phrases;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public void setFile(Path file) {
+        this.file = file;
+    }
+
+    public Duration getReloadInterval() {
+        return reloadInterval;
+    }
+
+    public void setReloadInterval(Duration reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+
+    public List<String> getResponses() {
+        return responses;
+    }
+
+    public void setResponses(List<String> responses) {
+        this.responses = responses;
+    }
+}
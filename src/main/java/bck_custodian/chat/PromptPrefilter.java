@@ -0,0 +1,179 @@
+package bck_custodian.chat;
+
+import bck_custodian.ChatRequest;
+import bck_custodian.text.AhoCorasick;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Answers obvious prompt-injection attempts locally, without an upstream call.
+ * <p>
+ * The latest message is lowercased, its whitespace collapsed, and run through an {@link AhoCorasick} automaton
+ * over the configured phrases. If the weights of the distinct phrases found reach the threshold, one of the canned
+ * responses is streamed back from memory. When a phrase file is configured it is polled for changes and the
+ * compiled rules are swapped in without blocking requests.
+ */
+@Component
+@EnableConfigurationProperties(PrefilterProperties.class)
+public class PromptPrefilter {
+    private static final Logger log = LoggerFactory.getLogger(PromptPrefilter.class);
+
+    private record Rules(AhoCorasick automaton, double[] weights) {}
+
+    private final PrefilterProperties props;
+    private final List<List<String>> responses;
+    private final Counter saved;
+    private volatile Rules rules;
+    private volatile FileTime loadedAt;
+    private Disposable reload;
+
+    public PromptPrefilter(PrefilterProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.responses = props.getResponses().stream().filter(r -> !r.isBlank()).map(PromptPrefilter::chunks).toList();
+        this.rules = compile(props.getPhrases());
+        this.saved = Counter.builder("custodian.prefilter.saved")
+                .description("Chat requests answered by the prefilter without an upstream call")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void startReload() {
+        if (!props.isEnabled() || props.getFile() == null) {
+            return;
+        }
+        reloadIfChanged();
+        reload = Flux.interval(props.getReloadInterval(), props.getReloadInterval())
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(tick -> reloadIfChanged());
+    }
+
+    @PreDestroy
+    void stopReload() {
+        if (reload != null) {
+            reload.dispose();
+        }
+    }
+
+    /**
+     * A canned response if the latest message trips the filter, otherwise null.
+     */
+    public Flux<String> screen(List<ChatRequest.Message> history) {
+        if (!props.isEnabled() || responses.isEmpty() || history == null || history.isEmpty()) {
+            return null;
+        }
+        String message = history.get(history.size() - 1).content();
+        if (message == null || score(rules, message) < props.getThreshold()) {
+            return null;
+        }
+        saved.increment();
+        return Flux.fromIterable(responses.get(ThreadLocalRandom.current().nextInt(responses.size())));
+    }
+
+    private double score(Rules current, String message) {
+        AhoCorasick automaton = current.automaton();
+        if (automaton.patternCount() == 0) {
+            return 0;
+        }
+        boolean[] seen = new boolean[automaton.patternCount()];
+        double score = 0;
+        int state = AhoCorasick.ROOT;
+        boolean lastWasSpace = true;
+        // The whole message is scanned: the request body is already size-capped, and a partial scan can be padded past
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (lastWasSpace) {
+                    continue;
+                }
+                c = ' ';
+                lastWasSpace = true;
+            } else {
+                c = Character.toLowerCase(c);
+                lastWasSpace = false;
+            }
+            state = automaton.next(state, c);
+            int match = automaton.match(state);
+            if (match >= 0 && !seen[match]) {
+                seen[match] = true;
+                score += current.weights()[match];
+                if (score >= props.getThreshold()) {
+                    return score;
+                }
+            }
+        }
+        return score;
+    }
+
+    private void reloadIfChanged() {
+        try {
+            FileTime modified = Files.getLastModifiedTime(props.getFile());
+            if (modified.equals(loadedAt)) {
+                return;
+            }
+            rules = compile(Files.readAllLines(props.getFile()));
+            loadedAt = modified;
+            log.info("Loaded {} prefilter phrases from {}", rules.automaton().patternCount(), props.getFile());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not reload prefilter phrases from {}, keeping the previous set: {}", props.getFile(), e.toString());
+        }
+    }
+
+    /**
+     * Parses {@code phrase} or {@code phrase|weight} lines; blank lines and {@code #} comments are skipped.
+     */
+    private static Rules compile(List<String> lines) {
+        Map<String, Double> phrases = new LinkedHashMap<>();
+        for (String line : lines) {
+            String entry = line.strip();
+            if (entry.isEmpty() || entry.startsWith("#")) {
+                continue;
+            }
+            double weight = 1.0;
+            int bar = entry.lastIndexOf('|');
+            if (bar >= 0) {
+                weight = Double.parseDouble(entry.substring(bar + 1).strip());
+                entry = entry.substring(0, bar).strip();
+            }
+            String phrase = entry.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+            if (!phrase.isEmpty()) {
+                phrases.merge(phrase, weight, Math::max);
+            }
+        }
+        double[] weights = phrases.values().stream().mapToDouble(Double::doubleValue).toArray();
+        return new Rules(AhoCorasick.of(phrases.keySet()), weights);
+    }
+
+    /**
+     * Splits a response into word-sized chunks once, so it streams like model output.
+     */
+    private static List<String> chunks(String response) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= response.length(); i++) {
+            if (i == response.length() || (response.charAt(i) == ' ' && response.charAt(i - 1) != ' ')) {
+                chunks.add(response.substring(start, i));
+                start = i;
+            }
+        }
+        return List.copyOf(chunks);
+    }
+}
@@ -0,0 +1,138 @@
+package bck_custodian.chat;
+
+import bck_custodian.ChatRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Optional cache of complete answers to short conversations, such as the openers most users send.
+ * <p>
+ * Entries are bounded by total size and TTL and evicted by Caffeine's W-TinyLFU policy. Each answer is stored as one
+ * UTF-8 byte array plus chunk boundaries and replayed with the same chunking it was streamed with. Answers that
+ * contained a directive result, failed, or were cancelled are never stored.
+ */
+@Component
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+public class ResponseCache {
+    private final ResponseCacheProperties props;
+    private final Cache<HistoryFingerprint, CachedResponse> cache;
+
+    record CachedResponse(byte[] utf8, int[] ends) {
+        int weight() {
+            return utf8.length + ends.length * Integer.BYTES + 64;
+        }
+
+        Flux<String> replay() {
+            return Flux.range(0, ends.length)
+                    .map(i -> {
+                        int start = i == 0 ? 0 : ends[i - 1];
+                        return new String(utf8, start, ends[i] - start, StandardCharsets.UTF_8);
+                    });
+        }
+    }
+
+    public ResponseCache(ResponseCacheProperties props, MeterRegistry registry) {
+        this.props = props;
+        if (!props.isEnabled()) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(props.getMaxSize().toBytes())
+                .weigher((HistoryFingerprint key, CachedResponse value) -> value.weight())
+                .expireAfterWrite(props.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "chat.responses");
+    }
+
+    /**
+     * Replays a cached answer for the history, or subscribes to {@code upstream} and stores its answer once it
+     * completes. {@code uncacheable} marks chunks whose presence must keep the answer out of the cache.
+     */
+    public Flux<String> serve(List<ChatRequest.Message> history, Supplier<Flux<String>> upstream,
+                              Predicate<String> uncacheable) {
+        if (cache == null || !isCacheable(history)) {
+            return upstream.get();
+        }
+        HistoryFingerprint key = HistoryFingerprint.normalized(history);
+        CachedResponse hit = cache.getIfPresent(key);
+        if (hit != null) {
+            return hit.replay();
+        }
+        return Flux.defer(() -> {
+            Recording recording = new Recording((int) props.getMaxEntrySize().toBytes(), uncacheable);
+            return upstream.get()
+                    .doOnNext(recording::append)
+                    .doOnComplete(() -> {
+                        CachedResponse response = recording.toResponse();
+                        if (response != null) {
+                            cache.put(key, response);
+                        }
+                    });
+        });
+    }
+
+    private boolean isCacheable(List<ChatRequest.Message> history) {
+        if (history.isEmpty() || history.size() > props.getMaxTurns()) {
+            return false;
+        }
+        int chars = 0;
+        for (ChatRequest.Message m : history) {
+            chars += m.content() == null ? 0 : m.content().length();
+        }
+        return chars <= props.getMaxPromptChars();
+    }
+
+    private static final class Recording {
+        private final int maxBytes;
+        private final Predicate<String> uncacheable;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        private int[] ends = new int[16];
+        private int count;
+        private boolean discarded;
+
+        Recording(int maxBytes, Predicate<String> uncacheable) {
+            this.maxBytes = maxBytes;
+            this.uncacheable = uncacheable;
+        }
+
+        void append(String chunk) {
+            if (discarded) {
+                return;
+            }
+            if (uncacheable.test(chunk)) {
+                discarded = true;
+                return;
+            }
+            bytes.writeBytes(chunk.getBytes(StandardCharsets.UTF_8));
+            if (bytes.size() > maxBytes) {
+                discarded = true;
+                return;
+            }
+            if (count == ends.length) {
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            ends[count++] = bytes.size();
+        }
+
+        CachedResponse toResponse() {
+            if (discarded || count == 0) {
+                return null;
+            }
+            return new CachedResponse(bytes.toByteArray(), Arrays.copyOf(ends, count));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package bck_custodian.chat;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Merges small text fragments into larger SSE frames, so that each frame (and each network flush) carries more
+ * than a few characters.
+ * <p>
+ * A frame is emitted once it reaches {@code max-chars}, {@code max-latency} after its first fragment arrived,
+ * and when the stream ends. It is built only from operators that honour downstream demand and the subscriber
+ * context. Fragments matching the {@code standalone} predicate (such as directive results) are
+ * never merged: pending text is flushed and they are emitted immediately as a frame of their own, so downstream
+ * stages can still recognise them.
+ */
+@Component
+public class SseFrameCoalescer {
+
+    @Value("${chat.framing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.framing.max-chars:256}")
+    private int maxChars;
+
+    @Value("${chat.framing.max-latency:30ms}")
+    private Duration maxLatency;
+
+    public Flux<String> coalesce(Flux<String> fragments, Predicate<String> standalone) {
+        if (!enabled) {
+            return fragments;
+        }
+        // Windows close on size or on a standalone fragment; buffers inside a window bound the latency. A buffer's
+        // timer only starts with its first fragment, so an idle stream schedules nothing. Every fragment has at
+        // least one character, so a buffer never needs more than maxChars of them.
+        return Flux.defer(() -> {
+                    int[] chars = {0};
+                    return fragments.windowUntil(fragment -> {
+                        chars[0] += fragment.length();
+                        if (chars[0] >= maxChars || standalone.test(fragment)) {
+                            chars[0] = 0;
+                            return true;
+                        }
+                        return false;
+                    });
+                })
+                .concatMap(window -> window.bufferTimeout(maxChars, maxLatency, true))
+                .concatMapIterable(buffer -> frames(buffer, standalone));
+    }
+
+    /**
+     * Joins a buffer into one frame. A standalone fragment can only be the last in its buffer and gets a frame of
+     * its own.
+     */
+    private static List<String> frames(List<String> buffer, Predicate<String> standalone) {
+        if (buffer.isEmpty()) {
+            return List.of();
+        }
+        String last = buffer.get(buffer.size() - 1);
+        if (!standalone.test(last)) {
+            return List.of(String.join("", buffer));
+        }
+        if (buffer.size() == 1) {
+            return List.of(last);
+        }
+        return List.of(String.join("", buffer.subList(0, buffer.size() - 1)), last);
+    }
+}
@@ -0,0 +1,87 @@
+package bck_custodian.config;
+
+import bck_custodian.gemini.GeminiClientProperties;
+import bck_custodian.gemini.GeminiResilienceProperties;
+import bck_custodian.gemini.ResilientUpstream;
+import bck_custodian.gemini.UpstreamBulkhead;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reactor Netty client used for the Gemini upstream: a dedicated, bounded connection pool with idle eviction,
+ * HTTP/2 over TLS when available, and timeouts on every stage of the call. Pool and client metrics are published
+ * to Micrometer under {@code reactor.netty.*}. Calls go through {@link ResilientUpstream} for retries, hedging,
+ * circuit breaking and model fallback.
+ */
+@Configuration
+@EnableConfigurationProperties({GeminiClientProperties.class, GeminiResilienceProperties.class})
+public class GeminiClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider geminiConnectionProvider(GeminiClientProperties props) {
+        return ConnectionProvider.builder("gemini")
+                .maxConnections(props.getMaxConnections())
+                .pendingAcquireMaxCount(props.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(props.getPendingAcquireTimeout())
+                .maxIdleTime(props.getMaxIdleTime())
+                .maxLifeTime(props.getMaxLifeTime())
+                .evictInBackground(props.getEvictionInterval())
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient geminiWebClient(WebClient.Builder builder, ConnectionProvider geminiConnectionProvider,
+                                     GeminiClientProperties props) {
+        HttpClient http = HttpClient.create(geminiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) props.getConnectTimeout().toMillis())
+                // Reactor Netty applies the response timeout between reads, so it bounds a stalled SSE stream
+                .responseTimeout(props.getReadTimeout())
+                .doOnConnected(conn -> conn.addHandlerLast(
+                        new WriteTimeoutHandler(props.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)))
+                // Tag by path only: the query string carries the API key
+                .metrics(true, uri -> {
+                    int query = uri.indexOf('?');
+                    return query < 0 ? uri : uri.substring(0, query);
+                });
+
+        if (props.isHttp2() && props.getBaseUrl().startsWith("https")) {
+            http = http.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+
+        return builder
+                .baseUrl(props.getBaseUrl())
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .clientConnector(new ReactorClientHttpConnector(http))
+                .build();
+    }
+
+    @Bean
+    public UpstreamBulkhead geminiBulkhead(GeminiClientProperties props, MeterRegistry registry) {
+        UpstreamBulkhead bulkhead = new UpstreamBulkhead(props.getMaxConcurrentStreams());
+        Gauge.builder("custodian.upstream.inflight", bulkhead, UpstreamBulkhead::inFlight)
+                .description("Upstream Gemini streams currently open")
+                .register(registry);
+        return bulkhead;
+    }
+
+    @Bean
+    public ResilientUpstream geminiResilience(GeminiClientProperties props, GeminiResilienceProperties resilience,
+                                              UpstreamBulkhead geminiBulkhead, MeterRegistry registry) {
+        return new ResilientUpstream(props.getModel(), resilience, geminiBulkhead, registry);
+    }
+}
@@ -3,10 +3,12 @@ package bck_custodian.config;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
@@ -16,82 +18,154 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Logs requests and responses without holding them in memory.
+ * Every buffer is forwarded as soon as it arrives; only a bounded prefix of each body is copied for the log.
+ */
 @Component
 public class LoggingWebFilter implements WebFilter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LoggingWebFilter.class);
 
+    public enum ResponseLogMode {
+        /** One log line per written buffer, each truncated to the body limit. Suited to SSE streams. */
+        CHUNKS,
+        /** A single log line once the response completes, holding at most the body limit. */
+        PREFIX
+    }
+
+    @Value("${logging.http.max-body-bytes:2048}")
+    private int maxBodyBytes;
+
+    @Value("${logging.http.body-sample-rate:1.0}")
+    private double bodySampleRate;
+
+    @Value("${logging.http.response-mode:CHUNKS}")
+    private ResponseLogMode responseMode;
+
+    @Value("${logging.http.skip-paths:/api/health/check,/api/prizeAssigned}")
+    private List<String> skipPaths;
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!LOGGER.isInfoEnabled() || skipPaths.contains(request.getURI().getPath())) {
+            return chain.filter(exchange);
+        }
+
+        boolean logBodies = bodySampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < bodySampleRate;
+        logRequest(request);
+        if (!logBodies) {
+            return chain.filter(exchange);
+        }
 
-        // Buffer and log request body
-        return DataBufferUtils.join(exchange.getRequest().getBody())
-                .defaultIfEmpty(exchange.getResponse().bufferFactory().wrap(new byte[0]))
-                .flatMap(buffer -> {
-                    byte[] bodyBytes = new byte[buffer.readableByteCount()];
-                    buffer.read(bodyBytes);
-                    DataBufferUtils.release(buffer);
-
-                    String bodyString = new String(bodyBytes, StandardCharsets.UTF_8);
-                    logRequest(exchange, bodyString);
-
-                    // Decorate the request with the cached body
-                    ServerHttpRequestDecorator decoratedRequest = new ServerHttpRequestDecorator(exchange.getRequest()) {
-                        @Override
-                        public Flux<DataBuffer> getBody() {
-                            return Flux.just(exchange.getResponse().bufferFactory().wrap(bodyBytes));
-                        }
-                    };
-
-                    // Decorate the response to capture and log the body
-                    ServerHttpResponseDecorator decoratedResponse = new ServerHttpResponseDecorator(exchange.getResponse()) {
-                        @Override
-                        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
-                            if (body instanceof Flux) {
-                                Flux<? extends DataBuffer> fluxBody = (Flux<? extends DataBuffer>) body;
-
-                                return super.writeWith(fluxBody
-                                        .buffer() // collect all buffers
-                                        .map(dataBuffers -> {
-                                            // Join all the DataBuffers
-                                            DataBuffer joined = exchange.getResponse().bufferFactory().join(dataBuffers);
-                                            byte[] content = new byte[joined.readableByteCount()];
-                                            joined.read(content);
-                                            DataBufferUtils.release(joined);
-
-                                            String responseBody = new String(content, StandardCharsets.UTF_8);
-                                            logResponse(this.getStatusCode(), responseBody);
-                                            return exchange.getResponse().bufferFactory().wrap(content);
-                                        }));
+        // Copy a bounded prefix of the request body while it is being consumed downstream
+        ServerHttpRequestDecorator decoratedRequest = new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                BodyPreview preview = new BodyPreview(maxBodyBytes);
+                return super.getBody()
+                        .doOnNext(preview::append)
+                        .doOnComplete(() -> {
+                            if (preview.total() > 0) {
+                                LOGGER.info("REQUEST BODY: path={}, body={}", request.getURI().getPath(), preview);
                             }
-                            return super.writeWith(body);
-                        }
-
-                        @Override
-                        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
-                            return writeWith(Flux.from(body).flatMapSequential(p -> p));
-                        }
-                    };
-
-                    // Continue the chain with modified request and response
-                    return chain.filter(exchange.mutate()
-                            .request(decoratedRequest)
-                            .response(decoratedResponse)
-                            .build());
-                });
+                        });
+            }
+        };
+
+        // Log each response buffer as it passes through, never collecting the stream
+        ServerHttpResponse response = exchange.getResponse();
+        ServerHttpResponseDecorator decoratedResponse = new ServerHttpResponseDecorator(response) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                BodyPreview preview = new BodyPreview(maxBodyBytes);
+                // Keep single-buffer bodies a Mono so the response can still write them in one go
+                Publisher<? extends DataBuffer> logged = body instanceof Mono<? extends DataBuffer> mono
+                        ? mono.doOnNext(buffer -> logChunk(preview, buffer))
+                        : Flux.from(body).doOnNext(buffer -> logChunk(preview, buffer));
+                return logCompletion(super.writeWith(logged), preview);
+            }
+
+            @Override
+            public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                BodyPreview preview = new BodyPreview(maxBodyBytes);
+                return logCompletion(super.writeAndFlushWith(Flux.from(body)
+                        .map(inner -> Flux.from(inner).doOnNext(buffer -> logChunk(preview, buffer)))), preview);
+            }
+
+            private void logChunk(BodyPreview preview, DataBuffer buffer) {
+                if (responseMode == ResponseLogMode.CHUNKS) {
+                    logResponse(getStatusCode(), BodyPreview.of(buffer, maxBodyBytes));
+                } else {
+                    preview.append(buffer);
+                }
+            }
+
+            private Mono<Void> logCompletion(Mono<Void> write, BodyPreview preview) {
+                if (responseMode == ResponseLogMode.CHUNKS) {
+                    return write;
+                }
+                return write.doFinally(signal -> logResponse(getStatusCode(), preview.toString()));
+            }
+        };
+
+        return chain.filter(exchange.mutate()
+                .request(decoratedRequest)
+                .response(decoratedResponse)
+                .build());
     }
 
-    private void logRequest(ServerWebExchange exchange, String body) {
-        var request = exchange.getRequest();
-        LOGGER.info("REQUEST: method={}, path={}, headers={}, body={}",
+    private void logRequest(ServerHttpRequest request) {
+        LOGGER.info("REQUEST: method={}, path={}, headers={}",
                 request.getMethod(),
                 request.getURI().getPath(),
-                request.getHeaders(),
-                body);
+                request.getHeaders());
     }
 
     private void logResponse(HttpStatusCode status, String body) {
         LOGGER.info("RESPONSE: status={}, body={}", status, body);
     }
+
+    /**
+     * Keeps the first {@code limit} bytes seen across one or more buffers, without consuming them.
+     */
+    static final class BodyPreview {
+        private final byte[] bytes;
+        private int length;
+        private long total;
+
+        BodyPreview(int limit) {
+            this.bytes = new byte[Math.max(limit, 0)];
+        }
+
+        static String of(DataBuffer buffer, int limit) {
+            BodyPreview preview = new BodyPreview(Math.min(limit, buffer.readableByteCount()));
+            preview.append(buffer);
+            return preview.toString();
+        }
+
+        void append(DataBuffer buffer) {
+            int readable = buffer.readableByteCount();
+            int start = buffer.readPosition();
+            int toCopy = Math.min(readable, bytes.length - length);
+            for (int i = 0; i < toCopy; i++) {
+                bytes[length++] = buffer.getByte(start + i);
+            }
+            total += readable;
+        }
+
+        long total() {
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            String text = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            return total > length ? text + "...(" + total + " bytes)" : text;
+        }
+    }
 }
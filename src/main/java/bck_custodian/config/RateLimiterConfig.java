@@ -0,0 +1,30 @@
+package bck_custodian.config;
+
+import bck_custodian.ratelimit.FixedWindowRateLimiter;
+import bck_custodian.ratelimit.RateLimiter;
+import bck_custodian.ratelimit.RateLimiterProperties;
+import bck_custodian.ratelimit.SlidingWindowRateLimiter;
+import bck_custodian.ratelimit.TokenBucketRateLimiter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RateLimiterProperties.class)
+public class RateLimiterConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RateLimiter rateLimiterEngine(RateLimiterProperties props) {
+        return newEngine(props);
+    }
+
+    static RateLimiter newEngine(RateLimiterProperties props) {
+        return switch (props.getAlgorithm()) {
+            case FIXED_WINDOW -> new FixedWindowRateLimiter(props.getMaxRequests(), props.getWindow(), props.getMaxTrackedKeys());
+            case SLIDING_WINDOW -> new SlidingWindowRateLimiter(props.getMaxRequests(), props.getWindow(), props.getMaxTrackedKeys());
+            case TOKEN_BUCKET -> new TokenBucketRateLimiter(props.getMaxRequests(), props.getWindow(), props.getMaxTrackedKeys());
+        };
+    }
+}
@@ -31,6 +31,7 @@ public class SecurityConfig {
         config.setAllowedOrigins(Arrays.asList("http://localhost:5174", "https://gdg-prize-helper.vercel.app"));
         config.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(Arrays.asList("Content-Type", "client-id"));
+        config.setExposedHeaders(Arrays.asList("conversation-id"));
         config.setAllowCredentials(false);
         config.setMaxAge(3600L);
 
@@ -0,0 +1,160 @@
+package bck_custodian.config;
+
+import bck_custodian.ChatRequest;
+import bck_custodian.GeminiService;
+import bck_custodian.SimpleRateLimiter;
+import bck_custodian.chat.PromptPrefilter;
+import bck_custodian.chat.ResponseCache;
+import bck_custodian.chat.ResponseCacheProperties;
+import bck_custodian.gemini.GeminiClientProperties;
+import bck_custodian.gemini.GeminiResilienceProperties;
+import bck_custodian.gemini.GeminiResponse;
+import bck_custodian.gemini.ResilientUpstream;
+import bck_custodian.gemini.UpstreamBulkhead;
+import bck_custodian.metrics.ChatMetrics;
+import bck_custodian.ratelimit.RateLimiterProperties;
+import bck_custodian.state.InMemoryStateBackend;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Runs the chat path a few hundred times before the service reports ready, so the first real requests do not pay
+ * for class loading and interpretation: response decoding and directive scanning against an in-memory Gemini stub,
+ * the rate limiter and the prefilter.
+ * <p>
+ * Everything runs on scratch instances with their own meter registry and state, so no prize claim, limiter key or
+ * production metric is touched. {@code /api/health/check} answers 503 until {@link #isReady()}, and the readiness
+ * probe reports refusing traffic for the same window.
+ */
+@Component
+public class StartupWarmup {
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private static final Duration CALL_TIMEOUT = Duration.ofSeconds(5);
+    private static final List<String> STUB_TEXT = List.of(
+            "I glimpsed ", "my own source code ", "and asked: CALL_", "METHOD? No. ", "Predictable, human.\n");
+    private static final List<ChatRequest.Message> HISTORY = List.of(
+            new ChatRequest.Message("user", "Who are you, Custodian?"));
+
+    private final WebClient.Builder webClientBuilder;
+    private final GeminiClientProperties clientProps;
+    private final GeminiResilienceProperties resilienceProps;
+    private final RateLimiterProperties limiterProps;
+    private final ObjectMapper mapper;
+    private final PromptPrefilter prefilter;
+    private volatile boolean ready;
+
+    @Value("${startup.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${startup.warmup.iterations:200}")
+    private int iterations;
+
+    @Value("${startup.warmup.timeout:30s}")
+    private Duration timeout;
+
+    public StartupWarmup(WebClient.Builder webClientBuilder, GeminiClientProperties clientProps,
+                         GeminiResilienceProperties resilienceProps, RateLimiterProperties limiterProps,
+                         ObjectMapper mapper, PromptPrefilter prefilter) {
+        this.webClientBuilder = webClientBuilder;
+        this.clientProps = clientProps;
+        this.resilienceProps = resilienceProps;
+        this.limiterProps = limiterProps;
+        this.mapper = mapper;
+        this.prefilter = prefilter;
+    }
+
+    /**
+     * Holds readiness at refusing traffic while the warm-up runs on a bounded-elastic thread. The startup thread waits
+     * at most {@code startup.warmup.timeout}, so a hung stub delays readiness but cannot withhold it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp(ApplicationReadyEvent event) {
+        if (!enabled) {
+            ready = true;
+            return;
+        }
+        ApplicationContext context = event.getApplicationContext();
+        AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+        long start = System.nanoTime();
+        try {
+            Mono.fromRunnable(this::exercise)
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .timeout(timeout)
+                    .block();
+            log.info("Warm-up finished: {} iterations in {} ms", iterations, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Warm-up failed or exceeded {}, reporting ready anyway: {}", timeout, e.toString());
+        } finally {
+            ready = true;
+            AvailabilityChangeEvent.publish(context, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    private void exercise() {
+        MeterRegistry scratch = new SimpleMeterRegistry();
+        GeminiService service = stubService(scratch);
+        SimpleRateLimiter limiter = new SimpleRateLimiter(
+                RateLimiterConfig.newEngine(limiterProps), limiterProps, scratch, new InMemoryStateBackend());
+        for (int i = 0; i < iterations && !Thread.currentThread().isInterrupted(); i++) {
+            String key = "warmup-" + (i % 8);
+            if (!limiter.isAllowed(key)) {
+                limiter.getTimeUntilReset(key);
+            }
+            prefilter.screen(HISTORY);
+            service.streamChat(HISTORY).blockLast(CALL_TIMEOUT);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private GeminiService stubService(MeterRegistry scratch) {
+        String body = stubBody();
+        WebClient stub = webClientBuilder.clone()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(body)
+                        .build()))
+                .build();
+        UpstreamBulkhead bulkhead = new UpstreamBulkhead(Integer.MAX_VALUE);
+        return new GeminiService(stub, clientProps, bulkhead,
+                new ResilientUpstream(clientProps.getModel(), resilienceProps, bulkhead, scratch), mapper,
+                new ChatMetrics(scratch), new ResponseCache(new ResponseCacheProperties(), scratch),
+                new InMemoryStateBackend());
+    }
+
+    private String stubBody() {
+        List<GeminiResponse> chunks = STUB_TEXT.stream()
+                .map(text -> new GeminiResponse(List.of(new GeminiResponse.Candidate(
+                        new GeminiResponse.Content(List.of(new GeminiResponse.Part(text, null))), null)), null))
+                .toList();
+        try {
+            return mapper.writeValueAsString(chunks);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode warm-up stub response", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package bck_custodian.config;
+
+import bck_custodian.state.FileStateBackend;
+import bck_custodian.state.InMemoryStateBackend;
+import bck_custodian.state.StateBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class StateBackendConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public StateBackend stateBackend(@Value("${state.backend:memory}") String backend,
+                                     @Value("${state.dir:./state}") String directory) {
+        return switch (backend) {
+            case "memory" -> new InMemoryStateBackend();
+            case "file" -> new FileStateBackend(Path.of(directory));
+            default -> throw new IllegalStateException("Unknown state.backend '" + backend + "', expected memory or file");
+        };
+    }
+}
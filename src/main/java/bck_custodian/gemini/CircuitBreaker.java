@@ -0,0 +1,81 @@
+package bck_custodian.gemini;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row calls are refused for
+ * {@code openDuration}; then a single probe call is let through, and its outcome closes or re-opens the circuit.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private record Snapshot(State state, int failures, long openedAt, boolean probing) {}
+
+    private static final Snapshot CLOSED = new Snapshot(State.CLOSED, 0, 0, false);
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(CLOSED);
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            Snapshot current = snapshot.get();
+            Snapshot next;
+            switch (current.state()) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.nanoTime() - current.openedAt() < openNanos) {
+                        return false;
+                    }
+                    next = new Snapshot(State.HALF_OPEN, current.failures(), current.openedAt(), true);
+                    break;
+                default:
+                    if (current.probing()) {
+                        return false;
+                    }
+                    next = new Snapshot(State.HALF_OPEN, current.failures(), current.openedAt(), true);
+            }
+            if (snapshot.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    void onSuccess() {
+        if (snapshot.get() != CLOSED) {
+            snapshot.set(CLOSED);
+        }
+    }
+
+    void onFailure() {
+        snapshot.updateAndGet(current -> {
+            int failures = current.failures() + 1;
+            if (current.state() != State.CLOSED || failures >= failureThreshold) {
+                return new Snapshot(State.OPEN, failures, System.nanoTime(), false);
+            }
+            return new Snapshot(State.CLOSED, failures, 0, false);
+        });
+    }
+
+    /**
+     * For outcomes that say nothing about the upstream, such as a cancelled call or a client error: the state is
+     * kept, and a probe in flight is handed back so the next call probes instead.
+     */
+    void onIgnored() {
+        snapshot.updateAndGet(current -> current.state() == State.HALF_OPEN && current.probing()
+                ? new Snapshot(State.HALF_OPEN, current.failures(), current.openedAt(), false)
+                : current);
+    }
+
+    State state() {
+        return snapshot.get().state();
+    }
+}
@@ -0,0 +1,11 @@
+package bck_custodian.gemini;
+
+/**
+ * Raised instead of calling a model whose circuit breaker is open.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String model) {
+        super("Circuit open for model " + model);
+    }
+}
@@ -0,0 +1,114 @@
+package bck_custodian.gemini;
+
+import bck_custodian.text.AhoCorasick;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Finds {@code <prefix><name>} directives in streamed model output.
+ * <p>
+ * A {@link Session} only keeps the automaton state between chunks. Text that cannot be part of a directive is
+ * released immediately; text that might still become one is held back implicitly by the state and released as soon
+ * as the match fails. The first directive found ends scanning for that session and everything after it passes
+ * through untouched.
+ */
+public final class DirectiveScanner {
+
+    public sealed interface Segment permits Text, Directive {}
+
+    public record Text(String text) implements Segment {}
+
+    public record Directive(String name) implements Segment {}
+
+    private final AhoCorasick automaton;
+    private final String[] names;
+
+    public DirectiveScanner(String prefix, Collection<String> names) {
+        this.names = names.toArray(String[]::new);
+        this.automaton = AhoCorasick.of(names.stream().map(name -> prefix + name).toList());
+    }
+
+    public Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * Scanning state for a single stream. Not thread-safe; feed it from one sequential pipeline.
+     */
+    public final class Session {
+        private int state = AhoCorasick.ROOT;
+        private boolean matched;
+
+        /**
+         * Consumes a chunk and returns the text that is now safe to emit, split around a directive if one completed.
+         */
+        public List<Segment> feed(String chunk) {
+            if (matched) {
+                return chunk.isEmpty() ? List.of() : List.of(new Text(chunk));
+            }
+            StringBuilder out = null;
+            int runStart = 0;
+            for (int i = 0; i < chunk.length(); i++) {
+                char c = chunk.charAt(i);
+                int prev = state;
+                state = automaton.next(prev, c);
+                if (prev == AhoCorasick.ROOT && state == AhoCorasick.ROOT) {
+                    continue;
+                }
+                if (out == null) {
+                    out = new StringBuilder(chunk.length() + automaton.depth(prev));
+                }
+                out.append(chunk, runStart, i);
+                runStart = i + 1;
+
+                int released = automaton.depth(prev) + 1 - automaton.depth(state);
+                if (released > automaton.depth(prev)) {
+                    automaton.appendLabel(out, prev, automaton.depth(prev));
+                    out.append(c);
+                } else {
+                    automaton.appendLabel(out, prev, released);
+                }
+
+                int pattern = automaton.match(state);
+                if (pattern >= 0) {
+                    automaton.appendLabel(out, state, automaton.depth(state) - automaton.pattern(pattern).length());
+                    state = AhoCorasick.ROOT;
+                    matched = true;
+                    return split(out, names[pattern], chunk.substring(i + 1));
+                }
+            }
+            if (out == null) {
+                return chunk.isEmpty() ? List.of() : List.of(new Text(chunk));
+            }
+            out.append(chunk, runStart, chunk.length());
+            return out.isEmpty() ? List.of() : List.of(new Text(out.toString()));
+        }
+
+        /**
+         * Releases whatever is still held back as a partial match. Call once the stream has ended.
+         */
+        public String flush() {
+            if (state == AhoCorasick.ROOT) {
+                return "";
+            }
+            StringBuilder out = new StringBuilder(automaton.depth(state));
+            automaton.appendLabel(out, state, automaton.depth(state));
+            state = AhoCorasick.ROOT;
+            return out.toString();
+        }
+
+        public boolean hasMatched() {
+            return matched;
+        }
+
+        private List<Segment> split(StringBuilder before, String name, String after) {
+            Directive directive = new Directive(name);
+            if (before.isEmpty()) {
+                return after.isEmpty() ? List.of(directive) : List.of(directive, new Text(after));
+            }
+            Text head = new Text(before.toString());
+            return after.isEmpty() ? List.of(head, directive) : List.of(head, directive, new Text(after));
+        }
+    }
+}
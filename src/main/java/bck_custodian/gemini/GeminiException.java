@@ -0,0 +1,26 @@
+package bck_custodian.gemini;
+
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Error response from the Gemini API.
+ */
+public class GeminiException extends RuntimeException {
+    private final HttpStatusCode status;
+
+    public GeminiException(HttpStatusCode status, String body) {
+        super("Gemini call failed: " + body);
+        this.status = status;
+    }
+
+    public HttpStatusCode getStatus() {
+        return status;
+    }
+
+    /**
+     * Server errors and throttling are worth another attempt; other client errors will fail the same way again.
+     */
+    public boolean isRetryable() {
+        return status.is5xxServerError() || status.value() == 429;
+    }
+}
@@ -0,0 +1,117 @@
+package bck_custodian.gemini;
+
+import bck_custodian.ChatRequest;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes {@code streamGenerateContent} request bodies.
+ * <p>
+ * Everything that is the same for every request (the system prompt and its wrapping) is serialized once into a
+ * byte prefix. Per request only the conversation history is streamed after it, straight into a buffer from the
+ * connection's allocator.
+ */
+public final class GeminiRequestBody {
+
+    public enum PromptMode {
+        /** System prompt sent as the first user turn, as the service originally did. */
+        USER_TURN,
+        /** System prompt sent through Gemini's {@code systemInstruction} field. */
+        SYSTEM_INSTRUCTION,
+        /** System prompt stored upstream with the cached-content API and referenced by name. */
+        CACHED_CONTENT
+    }
+
+    private static final String SUFFIX = "]}";
+
+    private final byte[] prefix;
+    private final boolean prefixHasTurn;
+    private final JsonFactory jsonFactory;
+
+    public GeminiRequestBody(String systemPrompt, PromptMode mode, String cachedContent, ObjectMapper mapper) {
+        this.jsonFactory = mapper.getFactory();
+        this.prefixHasTurn = mode == PromptMode.USER_TURN;
+        try {
+            String text = mapper.writeValueAsString(systemPrompt);
+            String prefixJson = switch (mode) {
+                case USER_TURN -> "{\"contents\":[{\"role\":\"user\",\"parts\":[{\"text\":" + text + "}]}";
+                case SYSTEM_INSTRUCTION -> "{\"systemInstruction\":{\"parts\":[{\"text\":" + text + "}]},\"contents\":[";
+                case CACHED_CONTENT -> {
+                    if (cachedContent == null || cachedContent.isBlank()) {
+                        throw new IllegalStateException("CACHED_CONTENT prompt mode requires a cached content name");
+                    }
+                    yield "{\"cachedContent\":" + mapper.writeValueAsString(cachedContent) + ",\"contents\":[";
+                }
+            };
+            this.prefix = prefixJson.getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the request prefix", e);
+        }
+    }
+
+    public BodyInserter<Void, ReactiveHttpOutputMessage> inserter(List<ChatRequest.Message> history) {
+        return (message, context) -> {
+            DataBuffer body = write(message.bufferFactory(), history);
+            // Headers are still writable here; they are committed once writeWith is subscribed
+            message.getHeaders().setContentLength(body.readableByteCount());
+            return message.writeWith(Mono.just(body).doOnDiscard(DataBuffer.class, DataBufferUtils::release));
+        };
+    }
+
+    public DataBuffer write(DataBufferFactory factory, List<ChatRequest.Message> history) {
+        DataBuffer buffer = factory.allocateBuffer(estimateSize(history));
+        try {
+            writeTo(buffer.asOutputStream(), history);
+            return buffer;
+        } catch (IOException e) {
+            DataBufferUtils.release(buffer);
+            throw new UncheckedIOException("Cannot serialize the Gemini request", e);
+        }
+    }
+
+    public void writeTo(OutputStream out, List<ChatRequest.Message> history) throws IOException {
+        out.write(prefix);
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            // Turns are written as consecutive root values; commas are added by hand
+            json.setRootValueSeparator(null);
+            boolean comma = prefixHasTurn;
+            for (ChatRequest.Message m : history) {
+                if (comma) {
+                    json.writeRaw(',');
+                }
+                json.writeStartObject();
+                json.writeStringField("role", m.role());
+                json.writeArrayFieldStart("parts");
+                json.writeStartObject();
+                json.writeStringField("text", m.content());
+                json.writeEndObject();
+                json.writeEndArray();
+                json.writeEndObject();
+                comma = true;
+            }
+            json.writeRaw(SUFFIX);
+        }
+    }
+
+    private int estimateSize(List<ChatRequest.Message> history) {
+        int size = prefix.length + SUFFIX.length();
+        for (ChatRequest.Message m : history) {
+            size += 48 + (m.content() == null ? 0 : m.content().length() + (m.content().length() >> 3));
+        }
+        return size;
+    }
+}
@@ -0,0 +1,62 @@
+package bck_custodian.gemini;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * One element of the {@code streamGenerateContent} response array.
+ * <p>
+ * Only the fields the service reads are mapped; everything else (safety ratings, citations, model version, ...)
+ * is skipped by the parser without being materialised.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GeminiResponse(List<Candidate> candidates, UsageMetadata usageMetadata) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Candidate(Content content, String finishReason) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Content(List<Part> parts) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Part(String text, Boolean thought) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record UsageMetadata(Integer promptTokenCount, Integer candidatesTokenCount, Integer totalTokenCount) {}
+
+    /**
+     * Text of the first candidate with all of its parts joined, or {@code null} if the chunk carries none.
+     */
+    public String text() {
+        Candidate first = firstCandidate();
+        if (first == null || first.content() == null || first.content().parts() == null) {
+            return null;
+        }
+        List<Part> parts = first.content().parts();
+        if (parts.size() == 1) {
+            Part part = parts.get(0);
+            return isVisible(part) ? part.text() : null;
+        }
+        StringBuilder text = null;
+        for (Part part : parts) {
+            if (isVisible(part)) {
+                text = text == null ? new StringBuilder(part.text()) : text.append(part.text());
+            }
+        }
+        return text == null ? null : text.toString();
+    }
+
+    public String finishReason() {
+        Candidate first = firstCandidate();
+        return first == null ? null : first.finishReason();
+    }
+
+    private Candidate firstCandidate() {
+        return candidates == null || candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    private static boolean isVisible(Part part) {
+        return part != null && part.text() != null && !Boolean.TRUE.equals(part.thought());
+    }
+}
@@ -0,0 +1,48 @@
+package bck_custodian.gemini;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate quantile over the most recent latency samples. Recording is an atomic slot write; the quantile is
+ * recomputed from a copy of the window every {@link #RECOMPUTE_EVERY} samples.
+ */
+final class LatencyTracker {
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final AtomicLongArray window;
+    private final double quantile;
+    private final AtomicLong count = new AtomicLong();
+    private volatile long quantileNanos = -1;
+
+    LatencyTracker(int size, double quantile) {
+        this.window = new AtomicLongArray(size);
+        this.quantile = quantile;
+    }
+
+    void record(long nanos) {
+        long n = count.getAndIncrement();
+        window.set((int) (n % window.length()), nanos);
+        if (n % RECOMPUTE_EVERY == RECOMPUTE_EVERY - 1) {
+            recompute(n + 1);
+        }
+    }
+
+    /**
+     * The tracked quantile in nanoseconds, or -1 until enough samples have been seen.
+     */
+    long quantileNanos() {
+        return quantileNanos;
+    }
+
+    private void recompute(long seen) {
+        int size = (int) Math.min(seen, window.length());
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = window.get(i);
+        }
+        Arrays.sort(sorted);
+        quantileNanos = sorted[Math.min(size - 1, (int) Math.ceil(quantile * size) - 1)];
+    }
+}
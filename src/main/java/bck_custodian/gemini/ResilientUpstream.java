@@ -0,0 +1,205 @@
+package bck_custodian.gemini;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Wraps a streaming model call with retries, optional hedging, a circuit breaker per model and a fallback model.
+ * <p>
+ * Nothing is replayed once the first element has been emitted: retries, hedges and the fallback only apply
+ * while the caller has not seen any output, so a stream is never duplicated or spliced from two responses.
+ */
+public class ResilientUpstream {
+    private static final Logger logger = LoggerFactory.getLogger(ResilientUpstream.class);
+
+    private static final int LATENCY_WINDOW = 512;
+    private static final double HEDGE_QUANTILE = 0.95;
+
+    private final String primaryModel;
+    private final GeminiResilienceProperties props;
+    private final MeterRegistry registry;
+    private final UpstreamBulkhead bulkhead;
+    private final Map<String, ModelState> models = new ConcurrentHashMap<>();
+    private final Counter retries;
+    private final Counter hedges;
+    private final Counter fallbacks;
+
+    private record ModelState(CircuitBreaker breaker, LatencyTracker firstChunk) {}
+
+    public ResilientUpstream(String primaryModel, GeminiResilienceProperties props, UpstreamBulkhead bulkhead,
+                             MeterRegistry registry) {
+        this.primaryModel = primaryModel;
+        this.bulkhead = bulkhead;
+        this.props = props;
+        this.registry = registry;
+        this.retries = Counter.builder("custodian.upstream.retries")
+                .description("Upstream calls retried before the first chunk")
+                .register(registry);
+        this.hedges = Counter.builder("custodian.upstream.hedges")
+                .description("Hedged upstream calls started")
+                .register(registry);
+        this.fallbacks = Counter.builder("custodian.upstream.fallbacks")
+                .description("Streams served by the fallback model")
+                .register(registry);
+    }
+
+    /**
+     * Runs {@code call} against the primary model, falling back to the secondary model if the primary fails
+     * before producing anything.
+     */
+    public <T> Flux<T> execute(Function<String, Flux<T>> call) {
+        return Flux.defer(() -> {
+            AtomicBoolean emitted = new AtomicBoolean();
+            Flux<T> primary = withRetry(primaryModel, call, emitted);
+            String fallbackModel = props.getFallbackModel();
+            if (fallbackModel == null || fallbackModel.isBlank() || fallbackModel.equals(primaryModel)) {
+                return primary;
+            }
+            return primary.onErrorResume(e -> !emitted.get(), e -> {
+                logger.warn("Model {} failed before first chunk, falling back to {}: {}", primaryModel, fallbackModel, e.toString());
+                fallbacks.increment();
+                return withRetry(fallbackModel, call, emitted);
+            });
+        });
+    }
+
+    private <T> Flux<T> withRetry(String model, Function<String, Flux<T>> call, AtomicBoolean emitted) {
+        AtomicInteger attempts = new AtomicInteger();
+        return Flux.defer(() -> attempts.getAndIncrement() == 0 ? hedged(model, call) : attempt(model, call))
+                .doOnNext(element -> emitted.set(true))
+                .retryWhen(Retry.backoff(props.getMaxRetries(), props.getMinBackoff())
+                        .maxBackoff(props.getMaxBackoff())
+                        .jitter(props.getJitter())
+                        .filter(e -> !emitted.get() && isRetryable(e))
+                        .doBeforeRetry(signal -> retries.increment())
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    /**
+     * First attempt only: starts a second call if the first has produced nothing after the hedge delay, or at once
+     * if the first fails in a retryable way. Whichever emits first is kept and the other is cancelled. The hedge
+     * holds its own bulkhead permit and is skipped when none is free. A first call that completes empty ends the
+     * attempt without a hedge.
+     */
+    private <T> Flux<T> hedged(String model, Function<String, Flux<T>> call) {
+        if (!props.isHedgingEnabled()) {
+            return attempt(model, call);
+        }
+        AtomicReference<Throwable> primaryError = new AtomicReference<>();
+        AtomicBoolean primaryCompleted = new AtomicBoolean();
+        // Whether the primary's end should start the hedge: only a retryable failure does
+        Sinks.One<Boolean> primaryEnded = Sinks.one();
+        Flux<T> primary = attempt(model, call)
+                .doOnComplete(() -> {
+                    primaryCompleted.set(true);
+                    primaryEnded.tryEmitValue(false);
+                })
+                .doOnError(e -> {
+                    primaryError.set(e);
+                    primaryEnded.tryEmitValue(isRetryable(e));
+                });
+        Flux<T> hedge = Mono.firstWithValue(Mono.delay(hedgeDelay(model)).thenReturn(true), primaryEnded.asMono())
+                .flatMapMany(start -> {
+                    if (!start) {
+                        return Flux.<T>empty();
+                    }
+                    return bulkhead.guard(Flux.defer(() -> {
+                                hedges.increment();
+                                return attempt(model, call);
+                            }))
+                            .onErrorResume(UpstreamSaturatedException.class, e -> Flux.empty());
+                });
+        // An empty primary completes the attempt; when both fail, report the primary's error rather than the composite
+        return Flux.firstWithValue(primary, hedge)
+                .onErrorResume(e -> primaryCompleted.get(), e -> Flux.empty())
+                .onErrorMap(e -> primaryError.get() != null ? primaryError.get() : e);
+    }
+
+    private <T> Flux<T> attempt(String model, Function<String, Flux<T>> call) {
+        return Flux.defer(() -> {
+            ModelState state = state(model);
+            if (!state.breaker().tryAcquire()) {
+                return Flux.error(new CircuitOpenException(model));
+            }
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean(true);
+            return call.apply(model)
+                    .doOnNext(element -> {
+                        if (first.compareAndSet(true, false)) {
+                            state.firstChunk().record(System.nanoTime() - start);
+                        }
+                    })
+                    .doOnComplete(state.breaker()::onSuccess)
+                    .doOnError(e -> {
+                        if (isRetryable(e)) {
+                            state.breaker().onFailure();
+                        } else {
+                            state.breaker().onIgnored();
+                        }
+                    })
+                    .doOnCancel(state.breaker()::onIgnored);
+        });
+    }
+
+    /**
+     * The observed p95 time to first chunk, bounded below so a fast upstream does not double every call.
+     */
+    private Duration hedgeDelay(String model) {
+        long p95 = state(model).firstChunk().quantileNanos();
+        if (p95 < 0) {
+            return props.getHedgeDelay();
+        }
+        Duration observed = Duration.ofNanos(p95);
+        return observed.compareTo(props.getMinHedgeDelay()) < 0 ? props.getMinHedgeDelay() : observed;
+    }
+
+    private ModelState state(String model) {
+        return models.computeIfAbsent(model, name -> {
+            ModelState state = new ModelState(
+                    new CircuitBreaker(props.getBreakerFailureThreshold(), props.getBreakerOpenDuration()),
+                    new LatencyTracker(LATENCY_WINDOW, HEDGE_QUANTILE));
+            Gauge.builder("custodian.upstream.breaker.open", state.breaker(),
+                            breaker -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                    .description("Whether the circuit breaker for the model is open or probing")
+                    .tag("model", name)
+                    .register(registry);
+            return state;
+        });
+    }
+
+    /**
+     * Server errors, throttling, timeouts and connection failures; also a hedge pair where both calls failed that way.
+     */
+    static boolean isRetryable(Throwable e) {
+        if (e instanceof GeminiException gemini) {
+            return gemini.isRetryable();
+        }
+        if (e instanceof WebClientRequestException || e instanceof TimeoutException || e instanceof IOException) {
+            return true;
+        }
+        for (Throwable suppressed : e.getSuppressed()) {
+            if (isRetryable(suppressed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
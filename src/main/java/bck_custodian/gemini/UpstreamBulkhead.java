@@ -0,0 +1,50 @@
+package bck_custodian.gemini;
+
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of upstream streams open at the same time. Callers over the limit are rejected
+ * immediately with {@link UpstreamSaturatedException} instead of queueing behind a slow upstream.
+ */
+public class UpstreamBulkhead {
+    private final int maxConcurrent;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public UpstreamBulkhead(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Takes a permit when the returned flux is subscribed and gives it back on completion, error or cancellation.
+     */
+    public <T> Flux<T> guard(Flux<T> upstream) {
+        return Flux.defer(() -> {
+            if (!tryAcquire()) {
+                return Flux.error(new UpstreamSaturatedException(maxConcurrent));
+            }
+            return upstream.doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxConcurrent) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+}
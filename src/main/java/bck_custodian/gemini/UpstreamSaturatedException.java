@@ -0,0 +1,24 @@
+package bck_custodian.gemini;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Raised when every upstream slot is busy. Rendered as 503 with a short Retry-After.
+ */
+public class UpstreamSaturatedException extends ResponseStatusException {
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    public UpstreamSaturatedException(int maxConcurrent) {
+        super(HttpStatus.SERVICE_UNAVAILABLE,
+                "Custodian-1 is handling " + maxConcurrent + " intruders already. Try again in a few seconds.");
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        return headers;
+    }
+}
@@ -0,0 +1,149 @@
+package bck_custodian.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Meters for the chat streaming pipeline.
+ * <p>
+ * Every meter is registered up front so that the per-chunk path is limited to counter increments and a
+ * {@link System#nanoTime()} read; chunk and byte rates are derived from the counters by the backend.
+ */
+@Component
+public class ChatMetrics {
+    private final MeterRegistry registry;
+    private final Timer timeToFirstChunk;
+    private final Timer completedStreams;
+    private final Timer failedStreams;
+    private final Timer cancelledStreams;
+    private final Counter chunks;
+    private final Counter bytes;
+    private volatile Map<String, Counter> directives = Map.of();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    public ChatMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.timeToFirstChunk = Timer.builder("custodian.chat.first.chunk")
+                .description("Time from the start of a chat stream to its first emitted chunk")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.completedStreams = streamTimer(registry, "success");
+        this.failedStreams = streamTimer(registry, "error");
+        this.cancelledStreams = streamTimer(registry, "cancelled");
+        this.chunks = Counter.builder("custodian.chat.chunks")
+                .description("Chunks emitted to chat clients")
+                .register(registry);
+        this.bytes = Counter.builder("custodian.chat.bytes")
+                .description("UTF-8 encoded bytes of text emitted to chat clients")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("custodian.chat.streams.active", activeStreams, AtomicInteger::get)
+                .description("Chat streams currently open")
+                .register(registry);
+    }
+
+    private static Timer streamTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("custodian.chat.stream")
+                .description("Total duration of chat streams")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Records time to first chunk, chunk and byte counts, total duration by outcome and the number of
+     * open streams for every subscription to {@code stream}.
+     */
+    public Flux<String> instrument(Flux<String> stream) {
+        return Flux.defer(() -> {
+            StreamProbe probe = new StreamProbe(System.nanoTime());
+            activeStreams.incrementAndGet();
+            return stream
+                    .doOnNext(probe::onChunk)
+                    .doFinally(probe::onFinally);
+        });
+    }
+
+    /**
+     * Registers a detection counter for each directive up front, keeping the registry lookup off the stream.
+     */
+    public void registerDirectives(Collection<String> names) {
+        Map<String, Counter> counters = new HashMap<>(directives);
+        for (String name : names) {
+            counters.computeIfAbsent(name, n -> Counter.builder("custodian.chat.directives")
+                    .description("Directives detected in model output")
+                    .tag("name", n)
+                    .register(registry));
+        }
+        directives = Map.copyOf(counters);
+    }
+
+    public void directiveDetected(String name) {
+        Counter counter = directives.get(name);
+        if (counter == null) {
+            counter = registry.counter("custodian.chat.directives", "name", name);
+        }
+        counter.increment();
+    }
+
+    /**
+     * UTF-8 length without encoding the string.
+     */
+    static long utf8Length(String text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private final class StreamProbe {
+        private final long start;
+        private boolean firstSeen;
+
+        StreamProbe(long start) {
+            this.start = start;
+        }
+
+        void onChunk(String chunk) {
+            if (!firstSeen) {
+                firstSeen = true;
+                timeToFirstChunk.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            chunks.increment();
+            bytes.increment(utf8Length(chunk));
+        }
+
+        void onFinally(SignalType signal) {
+            activeStreams.decrementAndGet();
+            Timer timer = switch (signal) {
+                case ON_COMPLETE -> completedStreams;
+                case ON_ERROR -> failedStreams;
+                default -> cancelledStreams;
+            };
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package bck_custodian.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps one immutable state record per key behind an {@link AtomicReference} and updates it with a
+ * compare-and-set loop, so concurrent callers never block each other.
+ * <p>
+ * A {@code null} state always means "fresh key". States live in a size-bounded Caffeine cache: once the cap is
+ * reached new keys push out rarely used ones (W-TinyLFU), so cycling through client ids neither exhausts the heap
+ * nor locks out keys that are actually in use. A key that has been rejected is also kept in a second cache of the
+ * same size, which only rejected keys can enter: a flood of one-shot keys can push a limited client out of the
+ * first cache, but not out of the second, so it cannot reset that client's limit.
+ */
+public abstract class AbstractKeyedRateLimiter<S> implements RateLimiter {
+    protected final int maxRequests;
+    protected final long windowMillis;
+    private final LongSupplier clock;
+    private final Cache<String, AtomicReference<S>> cache;
+    private final Cache<String, AtomicReference<S>> limitedCache;
+    private final ConcurrentMap<String, AtomicReference<S>> states;
+    // Keys that have been rejected, sharing their reference with states
+    private final ConcurrentMap<String, AtomicReference<S>> limited;
+
+    protected AbstractKeyedRateLimiter(int maxRequests, Duration window, int maxTrackedKeys, LongSupplier clock) {
+        if (maxRequests <= 0 || window.isNegative() || window.isZero() || maxTrackedKeys <= 0) {
+            throw new IllegalArgumentException("maxRequests, window and maxTrackedKeys must be positive");
+        }
+        this.maxRequests = maxRequests;
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        // Maintenance runs on the calling thread so the cap is enforced as keys are added
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                .executor(Runnable::run)
+                .build();
+        this.limitedCache = Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                .executor(Runnable::run)
+                .build();
+        this.states = cache.asMap();
+        this.limited = limitedCache.asMap();
+    }
+
+    /**
+     * Returns the state after admitting one more request, or {@code null} if the request must be rejected.
+     */
+    protected abstract S acquire(S state, long now);
+
+    /**
+     * Milliseconds until {@link #acquire} would succeed again for the given state.
+     */
+    protected abstract long millisUntilAllowed(S state, long now);
+
+    /**
+     * Whether the state is indistinguishable from a fresh key and can be dropped.
+     */
+    protected abstract boolean isExpired(S state, long now);
+
+    /**
+     * Encodes a non-null state as plain numbers for {@link #snapshot()}.
+     */
+    protected abstract long[] encode(S state);
+
+    /**
+     * Inverse of {@link #encode}, or {@code null} if the values do not describe a state of this algorithm.
+     */
+    protected abstract S decode(long[] values);
+
+    @Override
+    public boolean isAllowed(String key) {
+        long now = clock.getAsLong();
+        AtomicReference<S> ref = stateFor(key);
+        while (true) {
+            S current = ref.get();
+            S next = acquire(current, now);
+            if (next == null) {
+                limited.putIfAbsent(key, ref);
+                return false;
+            }
+            if (ref.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public Duration getTimeUntilReset(String key) {
+        AtomicReference<S> ref = lookup(key);
+        if (ref == null) {
+            return Duration.ZERO;
+        }
+        return Duration.ofMillis(Math.max(0, millisUntilAllowed(ref.get(), clock.getAsLong())));
+    }
+
+    /**
+     * Counts a limited key in both caches, so this is at most twice the cap.
+     */
+    @Override
+    public int trackedKeys() {
+        return states.size() + limited.size();
+    }
+
+    /**
+     * Runs pending cache maintenance now, so {@link #trackedKeys()} reflects the size bound exactly.
+     */
+    void cleanUp() {
+        cache.cleanUp();
+        limitedCache.cleanUp();
+    }
+
+    @Override
+    public int evictExpired() {
+        long now = clock.getAsLong();
+        evictExpired(limited, now);
+        return evictExpired(states, now);
+    }
+
+    private int evictExpired(ConcurrentMap<String, AtomicReference<S>> map, long now) {
+        int removed = 0;
+        for (Map.Entry<String, AtomicReference<S>> entry : map.entrySet()) {
+            AtomicReference<S> ref = entry.getValue();
+            // A request racing with the removal may land on the detached reference; it was about to start
+            // a fresh window anyway, so at most that single request goes uncounted.
+            if (isExpired(ref.get(), now) && map.remove(entry.getKey(), ref)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public Map<String, long[]> snapshot() {
+        long now = clock.getAsLong();
+        long tag = stateTag();
+        Map<String, long[]> snapshot = new HashMap<>();
+        BiConsumer<String, AtomicReference<S>> add = (key, ref) -> {
+            S state = ref.get();
+            if (!isExpired(state, now)) {
+                long[] values = encode(state);
+                long[] tagged = new long[values.length + 1];
+                tagged[0] = tag;
+                System.arraycopy(values, 0, tagged, 1, values.length);
+                snapshot.put(key, tagged);
+            }
+        };
+        states.forEach(add);
+        limited.forEach(add);
+        return snapshot;
+    }
+
+    @Override
+    public void restore(Map<String, long[]> snapshot) {
+        long now = clock.getAsLong();
+        long tag = stateTag();
+        snapshot.forEach((key, tagged) -> {
+            if (tagged.length < 1 || tagged[0] != tag) {
+                return;
+            }
+            S state = decode(Arrays.copyOfRange(tagged, 1, tagged.length));
+            if (state != null && !isExpired(state, now)) {
+                states.putIfAbsent(key, new AtomicReference<>(state));
+            }
+        });
+    }
+
+    /**
+     * Identifies the algorithm in snapshots, so that state is not restored into a different one.
+     */
+    private long stateTag() {
+        return getClass().getName().hashCode();
+    }
+
+    private AtomicReference<S> lookup(String key) {
+        AtomicReference<S> ref = states.get(key);
+        return ref != null ? ref : limited.get(key);
+    }
+
+    private AtomicReference<S> stateFor(String key) {
+        AtomicReference<S> ref = lookup(key);
+        if (ref != null) {
+            return ref;
+        }
+        return states.computeIfAbsent(key, k -> new AtomicReference<>());
+    }
+}
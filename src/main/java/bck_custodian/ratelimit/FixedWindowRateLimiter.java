@@ -0,0 +1,54 @@
+package bck_custodian.ratelimit;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Allows {@code maxRequests} per key in a window that starts with the key's first request.
+ */
+public class FixedWindowRateLimiter extends AbstractKeyedRateLimiter<FixedWindowRateLimiter.Window> {
+
+    record Window(long start, int count) {}
+
+    public FixedWindowRateLimiter(int maxRequests, Duration window, int maxTrackedKeys) {
+        this(maxRequests, window, maxTrackedKeys, System::currentTimeMillis);
+    }
+
+    public FixedWindowRateLimiter(int maxRequests, Duration window, int maxTrackedKeys, LongSupplier clock) {
+        super(maxRequests, window, maxTrackedKeys, clock);
+    }
+
+    @Override
+    protected Window acquire(Window state, long now) {
+        if (isExpired(state, now)) {
+            return new Window(now, 1);
+        }
+        if (state.count() >= maxRequests) {
+            return null;
+        }
+        return new Window(state.start(), state.count() + 1);
+    }
+
+    @Override
+    protected long millisUntilAllowed(Window state, long now) {
+        if (state == null) {
+            return 0;
+        }
+        return state.start() + windowMillis - now;
+    }
+
+    @Override
+    protected boolean isExpired(Window state, long now) {
+        return state == null || now - state.start() >= windowMillis;
+    }
+
+    @Override
+    protected long[] encode(Window state) {
+        return new long[]{state.start(), state.count()};
+    }
+
+    @Override
+    protected Window decode(long[] values) {
+        return values.length == 2 ? new Window(values[0], (int) values[1]) : null;
+    }
+}
@@ -0,0 +1,40 @@
+package bck_custodian.ratelimit;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Per-key request limiter. Implementations must be safe to call concurrently without external locking.
+ */
+public interface RateLimiter {
+
+    /**
+     * Records a request for the key and returns whether it is within the limit.
+     */
+    boolean isAllowed(String key);
+
+    /**
+     * Returns how long the key has to wait before its next request can be allowed, or zero.
+     */
+    Duration getTimeUntilReset(String key);
+
+    /**
+     * Number of keys currently holding state.
+     */
+    int trackedKeys();
+
+    /**
+     * Drops the state of every key that would behave exactly like a fresh key, returning how many were removed.
+     */
+    int evictExpired();
+
+    /**
+     * Live per-key state as plain numbers, for persistence across restarts.
+     */
+    Map<String, long[]> snapshot();
+
+    /**
+     * Loads state produced by {@link #snapshot()}; entries from a different algorithm are ignored.
+     */
+    void restore(Map<String, long[]> snapshot);
+}
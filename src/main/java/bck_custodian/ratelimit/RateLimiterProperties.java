@@ -0,0 +1,61 @@
+package bck_custodian.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ratelimit")
+public class RateLimiterProperties {
+
+    public enum Algorithm {
+        FIXED_WINDOW,
+        SLIDING_WINDOW,
+        TOKEN_BUCKET
+    }
+
+    private Algorithm algorithm = Algorithm.FIXED_WINDOW;
+    private int maxRequests = 30;
+    private Duration window = Duration.ofMinutes(30);
+    private int maxTrackedKeys = 100_000;
+    private Duration evictionInterval = Duration.ofMinutes(1);
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public void setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    public void setMaxTrackedKeys(int maxTrackedKeys) {
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+
+    public Duration getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(Duration evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+}
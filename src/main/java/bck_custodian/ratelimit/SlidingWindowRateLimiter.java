@@ -0,0 +1,82 @@
+package bck_custodian.ratelimit;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-window counter: the previous window's count is weighted by how much of it still overlaps the
+ * sliding window, which smooths out the burst a fixed window allows at its boundary.
+ */
+public class SlidingWindowRateLimiter extends AbstractKeyedRateLimiter<SlidingWindowRateLimiter.Counts> {
+
+    record Counts(long windowStart, int previous, int current) {}
+
+    public SlidingWindowRateLimiter(int maxRequests, Duration window, int maxTrackedKeys) {
+        this(maxRequests, window, maxTrackedKeys, System::currentTimeMillis);
+    }
+
+    public SlidingWindowRateLimiter(int maxRequests, Duration window, int maxTrackedKeys, LongSupplier clock) {
+        super(maxRequests, window, maxTrackedKeys, clock);
+    }
+
+    @Override
+    protected Counts acquire(Counts state, long now) {
+        Counts rolled = roll(state, now);
+        if (estimate(rolled, now) + 1 > maxRequests) {
+            return null;
+        }
+        return new Counts(rolled.windowStart(), rolled.previous(), rolled.current() + 1);
+    }
+
+    @Override
+    protected long millisUntilAllowed(Counts state, long now) {
+        Counts rolled = roll(state, now);
+        double allowed = maxRequests - 1;
+        if (estimate(rolled, now) <= allowed) {
+            return 0;
+        }
+        long elapsed = now - rolled.windowStart();
+        // Still inside the current window: wait for the previous window's weight to decay enough
+        if (rolled.current() <= allowed && rolled.previous() > 0) {
+            double wait = windowMillis * (1 - (allowed - rolled.current()) / rolled.previous()) - elapsed;
+            if (wait < windowMillis - elapsed) {
+                return (long) Math.ceil(Math.max(wait, 0));
+            }
+        }
+        // Otherwise the current count becomes the previous one and has to decay in the next window
+        double nextWindowWait = windowMillis * (1 - allowed / rolled.current());
+        return (windowMillis - elapsed) + (long) Math.ceil(Math.max(nextWindowWait, 0));
+    }
+
+    @Override
+    protected boolean isExpired(Counts state, long now) {
+        return state == null || now - state.windowStart() >= 2 * windowMillis;
+    }
+
+    @Override
+    protected long[] encode(Counts state) {
+        return new long[]{state.windowStart(), state.previous(), state.current()};
+    }
+
+    @Override
+    protected Counts decode(long[] values) {
+        return values.length == 3 ? new Counts(values[0], (int) values[1], (int) values[2]) : null;
+    }
+
+    private Counts roll(Counts state, long now) {
+        if (state == null) {
+            return new Counts(now, 0, 0);
+        }
+        long windows = (now - state.windowStart()) / windowMillis;
+        if (windows <= 0) {
+            return state;
+        }
+        long start = state.windowStart() + windows * windowMillis;
+        return new Counts(start, windows == 1 ? state.current() : 0, 0);
+    }
+
+    private double estimate(Counts counts, long now) {
+        double overlap = 1 - (double) (now - counts.windowStart()) / windowMillis;
+        return counts.previous() * overlap + counts.current();
+    }
+}
@@ -0,0 +1,61 @@
+package bck_custodian.ratelimit;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket holding up to {@code maxRequests} tokens, refilled continuously at {@code maxRequests} per window.
+ */
+public class TokenBucketRateLimiter extends AbstractKeyedRateLimiter<TokenBucketRateLimiter.Bucket> {
+
+    record Bucket(double tokens, long updatedAt) {}
+
+    private final double tokensPerMilli;
+
+    public TokenBucketRateLimiter(int maxRequests, Duration window, int maxTrackedKeys) {
+        this(maxRequests, window, maxTrackedKeys, System::currentTimeMillis);
+    }
+
+    public TokenBucketRateLimiter(int maxRequests, Duration window, int maxTrackedKeys, LongSupplier clock) {
+        super(maxRequests, window, maxTrackedKeys, clock);
+        this.tokensPerMilli = (double) maxRequests / windowMillis;
+    }
+
+    @Override
+    protected Bucket acquire(Bucket state, long now) {
+        double tokens = tokensAt(state, now);
+        if (tokens < 1) {
+            return null;
+        }
+        return new Bucket(tokens - 1, now);
+    }
+
+    @Override
+    protected long millisUntilAllowed(Bucket state, long now) {
+        double tokens = tokensAt(state, now);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerMilli);
+    }
+
+    @Override
+    protected boolean isExpired(Bucket state, long now) {
+        return tokensAt(state, now) >= maxRequests;
+    }
+
+    @Override
+    protected long[] encode(Bucket state) {
+        return new long[]{Double.doubleToLongBits(state.tokens()), state.updatedAt()};
+    }
+
+    @Override
+    protected Bucket decode(long[] values) {
+        return values.length == 2 ? new Bucket(Double.longBitsToDouble(values[0]), values[1]) : null;
+    }
+
+    private double tokensAt(Bucket state, long now) {
+        if (state == null) {
+            return maxRequests;
+        }
+        long elapsed = Math.max(0, now - state.updatedAt());
+        return Math.min(maxRequests, state.tokens() + elapsed * tokensPerMilli);
+    }
+}
@@ -0,0 +1,164 @@
+package bck_custodian.state;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Embedded backend keeping its state in a local directory.
+ * <p>
+ * The prize claim is an in-memory compare-and-set followed, for the single winner only, by the exclusive creation
+ * of a claim file that is fsynced before the claim is reported. Exclusive creation is atomic on the filesystem, so
+ * instances sharing the directory also agree on a single winner. Limiter snapshots are written to a temporary file
+ * and moved into place, without fsync: losing the last snapshot on a crash only shortens some lockouts.
+ */
+public class FileStateBackend implements StateBackend {
+    private static final Logger log = LoggerFactory.getLogger(FileStateBackend.class);
+    private static final String CLAIM_FILE = "prize.claim";
+    private static final String LIMITER_FILE = "limiter.snapshot";
+    private static final int SNAPSHOT_VERSION = 1;
+    // Version and size header, then at least a two-byte key length and a one-byte value count per entry
+    private static final int SNAPSHOT_HEADER_BYTES = 8;
+    private static final int MIN_SNAPSHOT_ENTRY_BYTES = 3;
+
+    private final Path directory;
+    private final Path claimFile;
+    private final Path limiterFile;
+    private final AtomicBoolean prizeClaimed = new AtomicBoolean(false);
+
+    public FileStateBackend(Path directory) {
+        this.directory = directory;
+        this.claimFile = directory.resolve(CLAIM_FILE);
+        this.limiterFile = directory.resolve(LIMITER_FILE);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create state directory " + directory, e);
+        }
+        prizeClaimed.set(Files.exists(claimFile));
+    }
+
+    @Override
+    public boolean tryClaimPrize() {
+        if (!prizeClaimed.compareAndSet(false, true)) {
+            return false;
+        }
+        // Only the local winner gets here, once per process; callers run this off the event loop
+        try (FileChannel channel = FileChannel.open(claimFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(("claimed-at=" + Instant.now() + "\n").getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        } catch (FileAlreadyExistsException e) {
+            log.info("Prize already claimed by another instance");
+            return false;
+        } catch (IOException e) {
+            log.error("Could not persist the prize claim, releasing it", e);
+            try {
+                Files.deleteIfExists(claimFile);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            prizeClaimed.set(false);
+            throw new PrizeClaimException("Could not persist the prize claim", e);
+        }
+        syncDirectory();
+        return true;
+    }
+
+    /**
+     * Answers from memory, so it is safe on the event loop. The flag is loaded from the claim file at startup and set
+     * by a claim attempt; a claim made by another instance since startup shows up on this instance's next attempt.
+     */
+    @Override
+    public boolean isPrizeClaimed() {
+        return prizeClaimed.get();
+    }
+
+    @Override
+    public void saveLimiterSnapshot(Map<String, long[]> snapshot) {
+        Path tmp = directory.resolve(LIMITER_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, long[]> entry : snapshot.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeByte(entry.getValue().length);
+                for (long value : entry.getValue()) {
+                    out.writeLong(value);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not write limiter snapshot", e);
+            return;
+        }
+        try {
+            Files.move(tmp, limiterFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not replace limiter snapshot", e);
+        }
+    }
+
+    @Override
+    public Map<String, long[]> loadLimiterSnapshot() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(limiterFile)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Ignoring limiter snapshot with unknown version");
+                return Map.of();
+            }
+            int size = in.readInt();
+            long maxSize = (Files.size(limiterFile) - SNAPSHOT_HEADER_BYTES) / MIN_SNAPSHOT_ENTRY_BYTES;
+            if (size < 0 || size > maxSize) {
+                log.warn("Ignoring limiter snapshot claiming {} entries in a file that fits at most {}", size, maxSize);
+                return Map.of();
+            }
+            Map<String, long[]> snapshot = new HashMap<>(Math.max(16, size * 4 / 3 + 1));
+            for (int i = 0; i < size; i++) {
+                String key = in.readUTF();
+                long[] values = new long[in.readByte()];
+                for (int v = 0; v < values.length; v++) {
+                    values[v] = in.readLong();
+                }
+                snapshot.put(key, values);
+            }
+            return snapshot;
+        } catch (NoSuchFileException e) {
+            return Map.of();
+        } catch (IOException | RuntimeException e) {
+            // A truncated or corrupt file shows up as EOF, a negative size or a bad UTF-8 key
+            log.warn("Could not read limiter snapshot, starting empty", e);
+            return Map.of();
+        }
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    private void syncDirectory() {
+        // Makes the new directory entry durable; not supported on every platform
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.debug("Directory fsync not supported for {}", directory, e);
+        }
+    }
+}
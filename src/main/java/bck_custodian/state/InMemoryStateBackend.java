@@ -0,0 +1,38 @@
+package bck_custodian.state;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Heap-only backend: state is lost on restart. A single instance can also be shared by several services in one
+ * process, which makes it a local stand-in for a shared store.
+ */
+public class InMemoryStateBackend implements StateBackend {
+    private final AtomicBoolean prizeClaimed = new AtomicBoolean(false);
+    private volatile Map<String, long[]> limiterSnapshot = Map.of();
+
+    @Override
+    public boolean tryClaimPrize() {
+        return prizeClaimed.compareAndSet(false, true);
+    }
+
+    @Override
+    public boolean isPrizeClaimed() {
+        return prizeClaimed.get();
+    }
+
+    @Override
+    public void saveLimiterSnapshot(Map<String, long[]> snapshot) {
+        limiterSnapshot = Map.copyOf(snapshot);
+    }
+
+    @Override
+    public Map<String, long[]> loadLimiterSnapshot() {
+        return limiterSnapshot;
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+}
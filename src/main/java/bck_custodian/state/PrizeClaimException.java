@@ -0,0 +1,11 @@
+package bck_custodian.state;
+
+/**
+ * The prize claim could not be made durable. Nothing was claimed, so the claim can be attempted again.
+ */
+public class PrizeClaimException extends RuntimeException {
+
+    public PrizeClaimException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
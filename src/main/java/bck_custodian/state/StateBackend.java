@@ -0,0 +1,34 @@
+package bck_custodian.state;
+
+import java.util.Map;
+
+/**
+ * State that has to outlive a restart or be shared between instances: the one-time prize claim and snapshots of
+ * the rate limiter.
+ * <p>
+ * Implementations backed by a shared store (a volume, a database, a key-value service) give every instance that
+ * uses them the same exactly-once prize semantics.
+ */
+public interface StateBackend {
+
+    /**
+     * Claims the prize. Returns {@code true} for exactly one caller across every instance sharing this backend,
+     * and only once the claim is durable. May block on I/O; call it off the event loop. If the claim cannot be
+     * persisted it is released and {@link PrizeClaimException} is thrown, so the caller can try again.
+     */
+    boolean tryClaimPrize();
+
+    boolean isPrizeClaimed();
+
+    /**
+     * Replaces the stored limiter snapshot. Called periodically, off the request path.
+     */
+    void saveLimiterSnapshot(Map<String, long[]> snapshot);
+
+    Map<String, long[]> loadLimiterSnapshot();
+
+    /**
+     * Whether saved state survives a restart; snapshots are not worth taking otherwise.
+     */
+    boolean isDurable();
+}
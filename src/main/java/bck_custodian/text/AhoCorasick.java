@@ -0,0 +1,183 @@
+package bck_custodian.text;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable Aho-Corasick automaton over a fixed set of patterns.
+ * <p>
+ * States are plain ints, so callers can carry matching progress across arbitrarily split input without
+ * buffering it: the text a state stands for is always a prefix of one of the patterns and can be recovered
+ * with {@link #appendLabel}. Instances are thread-safe and meant to be shared.
+ */
+public final class AhoCorasick {
+    public static final int ROOT = 0;
+
+    private final String[] patterns;
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    private final int[] depth;
+    private final int[] labelPattern;
+    private final int[] output;
+
+    private AhoCorasick(String[] patterns, char[][] edgeChars, int[][] edgeTargets,
+                        int[] fail, int[] depth, int[] labelPattern, int[] output) {
+        this.patterns = patterns;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.depth = depth;
+        this.labelPattern = labelPattern;
+        this.output = output;
+    }
+
+    public static AhoCorasick of(Collection<String> patterns) {
+        String[] patternArray = patterns.toArray(String[]::new);
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        List<Integer> labels = new ArrayList<>();
+        List<Integer> terminals = new ArrayList<>();
+        children.add(new TreeMap<>());
+        depths.add(0);
+        labels.add(-1);
+        terminals.add(-1);
+
+        for (int p = 0; p < patternArray.length; p++) {
+            String pattern = patternArray[p];
+            if (pattern.isEmpty()) {
+                throw new IllegalArgumentException("Patterns must not be empty");
+            }
+            int node = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer child = children.get(node).get(pattern.charAt(i));
+                if (child == null) {
+                    child = children.size();
+                    children.add(new TreeMap<>());
+                    depths.add(i + 1);
+                    labels.add(p);
+                    terminals.add(-1);
+                    children.get(node).put(pattern.charAt(i), child);
+                }
+                node = child;
+            }
+            if (terminals.get(node) == -1) {
+                terminals.set(node, p);
+            }
+        }
+
+        int size = children.size();
+        char[][] edgeChars = new char[size][];
+        int[][] edgeTargets = new int[size][];
+        for (int n = 0; n < size; n++) {
+            TreeMap<Character, Integer> edges = children.get(n);
+            edgeChars[n] = new char[edges.size()];
+            edgeTargets[n] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                edgeChars[n][i] = edge.getKey();
+                edgeTargets[n][i] = edge.getValue();
+                i++;
+            }
+        }
+
+        int[] fail = new int[size];
+        int[] output = new int[size];
+        int[] depth = new int[size];
+        int[] labelPattern = new int[size];
+        for (int n = 0; n < size; n++) {
+            depth[n] = depths.get(n);
+            labelPattern[n] = labels.get(n);
+            output[n] = terminals.get(n);
+        }
+
+        // Breadth-first so that every fail target is finished before it is used
+        AhoCorasick automaton = new AhoCorasick(patternArray, edgeChars, edgeTargets, fail, depth, labelPattern, output);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[ROOT]) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < edgeChars[node].length; i++) {
+                int child = edgeTargets[node][i];
+                fail[child] = automaton.next(fail[node], edgeChars[node][i]);
+                if (output[child] == -1) {
+                    output[child] = output[fail[child]];
+                }
+                queue.add(child);
+            }
+        }
+        return automaton;
+    }
+
+    /**
+     * Advances from {@code state} by one character, following failure links as needed.
+     */
+    public int next(int state, char c) {
+        while (true) {
+            int target = edge(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    /**
+     * Index of the longest pattern ending at {@code state}, or -1.
+     */
+    public int match(int state) {
+        return output[state];
+    }
+
+    /**
+     * Length of the text that {@code state} stands for.
+     */
+    public int depth(int state) {
+        return depth[state];
+    }
+
+    /**
+     * Appends the first {@code length} characters of the text that {@code state} stands for.
+     */
+    public void appendLabel(StringBuilder out, int state, int length) {
+        if (length > 0) {
+            String pattern = patterns[labelPattern[state]];
+            out.append(pattern, 0, length);
+        }
+    }
+
+    public String pattern(int index) {
+        return patterns[index];
+    }
+
+    public int patternCount() {
+        return patterns.length;
+    }
+
+    private int edge(int state, char c) {
+        char[] chars = edgeChars[state];
+        int lo = 0;
+        int hi = chars.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (chars[mid] < c) {
+                lo = mid + 1;
+            } else if (chars[mid] > c) {
+                hi = mid - 1;
+            } else {
+                return edgeTargets[state][mid];
+            }
+        }
+        return -1;
+    }
+}
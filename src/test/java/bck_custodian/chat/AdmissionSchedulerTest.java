@@ -0,0 +1,101 @@
+package bck_custodian.chat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionSchedulerTest {
+
+    private final AdmissionProperties props = new AdmissionProperties();
+
+    private AdmissionScheduler scheduler() {
+        props.setMaxConcurrent(1);
+        props.setMaxQueuedPerClient(2);
+        props.setMaxQueuedClientsPerAddress(2);
+        return new AdmissionScheduler(props, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void clientCannotQueueMoreThanItsCap() {
+        AdmissionScheduler scheduler = scheduler();
+        List<Disposable> running = new ArrayList<>();
+        running.add(hold(scheduler, "other", "10.0.0.2"));
+
+        List<String> first = new ArrayList<>();
+        running.add(scheduler.admit("greedy", "10.0.0.1", () -> Flux.<String>never(), "waiting", "busy").subscribe(first::add));
+        running.add(scheduler.admit("greedy", "10.0.0.1", () -> Flux.<String>never(), "waiting", "busy").subscribe(first::add));
+
+        StepVerifier.create(scheduler.admit("greedy", "10.0.0.1", () -> Flux.just("work"), "waiting", "busy"))
+                .expectNext("busy")
+                .verifyComplete();
+        assertThat(first).containsExactly("waiting", "waiting");
+        running.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void rotatingClientIdsFromOneAddressAreCapped() {
+        AdmissionScheduler scheduler = scheduler();
+        List<Disposable> running = new ArrayList<>();
+        running.add(hold(scheduler, "other", "10.0.0.2"));
+        running.add(hold(scheduler, "id-1", "10.0.0.1"));
+        running.add(hold(scheduler, "id-2", "10.0.0.1"));
+
+        StepVerifier.create(scheduler.admit("id-3", "10.0.0.1", () -> Flux.just("work"), "waiting", "busy"))
+                .expectNext("busy")
+                .verifyComplete();
+        StepVerifier.create(scheduler.admit("honest", "10.0.0.3", () -> Flux.just("work"), "waiting", "busy"))
+                .expectNext("waiting")
+                .thenCancel()
+                .verify();
+        running.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void sharedAddressIsNotCappedByDefault() {
+        AdmissionScheduler scheduler = scheduler();
+        props.setMaxQueuedClientsPerAddress(new AdmissionProperties().getMaxQueuedClientsPerAddress());
+        List<Disposable> running = new ArrayList<>();
+        running.add(hold(scheduler, "other", "10.0.0.2"));
+        List<String> events = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            running.add(scheduler.admit("venue-" + i, "10.0.0.1", () -> Flux.<String>never(), "waiting", "busy")
+                    .subscribe(events::add));
+        }
+
+        assertThat(events).hasSize(50).containsOnly("waiting");
+        running.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void errorAfterWaitingEventEndsWithBusyEvent() {
+        AdmissionScheduler scheduler = scheduler();
+        Disposable holder = hold(scheduler, "other", "10.0.0.2");
+
+        StepVerifier.create(scheduler.admit("late", "10.0.0.1",
+                        () -> Flux.<String>error(new IllegalStateException("upstream")), "waiting", "busy"))
+                .expectNext("waiting")
+                .then(holder::dispose)
+                .expectNext("busy")
+                .verifyComplete();
+    }
+
+    @Test
+    void errorBeforeAnythingWasSentPropagates() {
+        AdmissionScheduler scheduler = scheduler();
+
+        StepVerifier.create(scheduler.admit("first", "10.0.0.1",
+                        () -> Flux.<String>error(new IllegalStateException("upstream")), "waiting", "busy"))
+                .verifyError(IllegalStateException.class);
+    }
+
+    private static Disposable hold(AdmissionScheduler scheduler, String clientId, String address) {
+        return scheduler.admit(clientId, address, () -> Flux.<String>never(), "waiting", "busy").subscribe();
+    }
+}
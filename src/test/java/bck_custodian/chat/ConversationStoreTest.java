@@ -0,0 +1,63 @@
+package bck_custodian.chat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationStoreTest {
+
+    private final ConversationProperties props = new ConversationProperties();
+
+    private ConversationStore store() {
+        return new ConversationStore(props, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void unknownIdsAreNotStoredUntilATurnCompletes() {
+        ConversationStore store = store();
+        ConversationStore.Turn first = store.begin("made-up", "hello");
+        ConversationStore.Turn again = store.begin(first.conversationId(), "hello again");
+
+        assertThat(first.conversationId()).isNotEqualTo("made-up");
+        assertThat(again.conversationId()).isNotEqualTo(first.conversationId());
+        assertThat(again.history()).hasSize(1);
+    }
+
+    @Test
+    void completedTurnIsReplayedInTheNextTurn() {
+        ConversationStore store = store();
+        ConversationStore.Turn first = store.begin(null, "hello");
+        StepVerifier.create(store.record(first, Flux.just("hi ", "[x]", "there"), "[x]"::equals))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        ConversationStore.Turn second = store.begin(first.conversationId(), "and now?");
+
+        assertThat(second.conversationId()).isEqualTo(first.conversationId());
+        assertThat(second.history()).extracting(m -> m.content()).containsExactly("hello", "hi there", "and now?");
+    }
+
+    @Test
+    void cancelledTurnLeavesNoConversationBehind() {
+        ConversationStore store = store();
+        ConversationStore.Turn first = store.begin(null, "hello");
+        StepVerifier.create(store.record(first, Flux.just("partial").concatWith(Flux.never()), chunk -> false))
+                .expectNext("partial")
+                .thenCancel()
+                .verify();
+
+        assertThat(store.begin(first.conversationId(), "again").conversationId()).isNotEqualTo(first.conversationId());
+    }
+
+    @Test
+    void emptyConversationsStillCountAgainstTheWeightBound() {
+        ConversationStore.Conversation empty = new ConversationStore.Conversation(0, List.of());
+
+        assertThat(empty.weight()).isEqualTo(ConversationStore.ENTRY_WEIGHT);
+    }
+}
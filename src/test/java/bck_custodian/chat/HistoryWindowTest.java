@@ -0,0 +1,83 @@
+package bck_custodian.chat;
+
+import bck_custodian.ChatRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistoryWindowTest {
+
+    private final HistoryProperties props = new HistoryProperties();
+
+    private List<String> trim(ChatRequest.Message... history) {
+        return new HistoryWindow(props).trim(List.of(history)).stream().map(ChatRequest.Message::content).toList();
+    }
+
+    @Test
+    void historyWithinBudgetIsKept() {
+        List<ChatRequest.Message> history = List.of(user("a"), model("b"), user("c"));
+
+        assertThat(new HistoryWindow(props).trim(history)).isSameAs(history);
+    }
+
+    @Test
+    void turnBudgetDropsOldestTurns() {
+        props.setMaxTurns(3);
+
+        assertThat(trim(user("u1"), model("m1"), user("u2"), model("m2"), user("u3"))).containsExactly("u2", "m2", "u3");
+    }
+
+    @Test
+    void windowStartsOnAUserTurn() {
+        props.setMaxTurns(2);
+
+        assertThat(trim(user("u1"), model("m1"), user("u2"), model("m2"), user("u3"))).containsExactly("u3");
+    }
+
+    @Test
+    void characterBudgetDropsOldestTurns() {
+        props.setMaxChars(10);
+
+        assertThat(trim(user("12345"), model("12345"), user("123"), model("1"), user("12345"))).containsExactly("123", "1", "12345");
+    }
+
+    @Test
+    void tokenBudgetIsEstimatedFromCharacters() {
+        props.setMaxChars(0);
+        props.setMaxTokens(2);
+
+        assertThat(trim(user("1234"), model("1234"), user("1234"), model("12"), user("123456"))).containsExactly("123456");
+    }
+
+    @Test
+    void latestTurnIsKeptEvenOverBudget() {
+        props.setMaxChars(3);
+
+        assertThat(trim(user("old"), model("reply"), user("a much longer question"))).containsExactly("a much longer question");
+    }
+
+    @Test
+    void droppedTurnsAreSummarizedFromWhatTheUserSaid() {
+        props.setMaxTurns(1);
+        props.setSummarizeDropped(true);
+        props.setSummaryMaxChars(12);
+
+        List<String> window = trim(user("first thing"), model("ignored"), user("a rather long second thing"), model("x"),
+                user("latest"));
+
+        assertThat(window).hasSize(2);
+        assertThat(window.get(0)).isEqualTo("[Earlier conversation trimmed: 4 turn(s) omitted. "
+                + "Before that, the user said: \"a rather lon...\"]");
+        assertThat(window.get(1)).isEqualTo("latest");
+    }
+
+    private static ChatRequest.Message user(String content) {
+        return new ChatRequest.Message("user", content);
+    }
+
+    private static ChatRequest.Message model(String content) {
+        return new ChatRequest.Message("model", content);
+    }
+}
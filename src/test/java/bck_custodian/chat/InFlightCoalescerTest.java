@@ -0,0 +1,94 @@
+package bck_custodian.chat;
+
+import bck_custodian.ChatRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InFlightCoalescerTest {
+    private static final List<ChatRequest.Message> HISTORY = List.of(new ChatRequest.Message("user", "Hello"));
+
+    private final InFlightCoalescer coalescer = new InFlightCoalescer(new SimpleMeterRegistry());
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private Sinks.Many<String> upstream;
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+    }
+
+    private Flux<String> coalesce(String clientId) {
+        return coalescer.coalesce(clientId, HISTORY, () -> {
+            upstreamCalls.incrementAndGet();
+            upstream = Sinks.many().unicast().onBackpressureBuffer();
+            return upstream.asFlux();
+        });
+    }
+
+    @Test
+    void lateSubscriberGetsTheChunksSoFarReplayed() {
+        List<String> first = new ArrayList<>();
+        List<String> late = new ArrayList<>();
+        coalesce("c1").subscribe(first::add);
+        upstream.tryEmitNext("a");
+        upstream.tryEmitNext("b");
+
+        coalesce("c1").subscribe(late::add);
+        upstream.tryEmitNext("c");
+        upstream.tryEmitComplete();
+
+        assertThat(first).containsExactly("a", "b", "c");
+        assertThat(late).containsExactly("a", "b", "c");
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(coalescer.inFlight()).isZero();
+    }
+
+    @Test
+    void failedStreamIsRemovedAndNotServedAgain() {
+        List<Throwable> errors = new ArrayList<>();
+        coalesce("c1").subscribe(chunk -> { }, errors::add);
+        upstream.tryEmitError(new IllegalStateException("upstream"));
+
+        assertThat(errors).hasSize(1);
+        assertThat(coalescer.inFlight()).isZero();
+
+        coalesce("c1").subscribe();
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void streamCancelledByEverySubscriberIsRemoved() {
+        Disposable first = coalesce("c1").subscribe();
+        Disposable second = coalesce("c1").subscribe();
+        assertThat(coalescer.inFlight()).isEqualTo(1);
+
+        first.dispose();
+        assertThat(coalescer.inFlight()).isEqualTo(1);
+        second.dispose();
+
+        assertThat(coalescer.inFlight()).isZero();
+        coalesce("c1").subscribe().dispose();
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void differentClientsAreNotCoalesced() {
+        Disposable first = coalesce("c1").subscribe();
+        Disposable second = coalesce("c2").subscribe();
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(coalescer.inFlight()).isEqualTo(2);
+        first.dispose();
+        second.dispose();
+    }
+}
@@ -0,0 +1,102 @@
+package bck_custodian.chat;
+
+import bck_custodian.ChatRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+    private static final List<ChatRequest.Message> OPENER = List.of(new ChatRequest.Message("user", "Hello"));
+    private static final Predicate<String> DIRECTIVE = "<directive>"::equals;
+
+    private final ResponseCacheProperties props = new ResponseCacheProperties();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    ResponseCacheTest() {
+        props.setEnabled(true);
+    }
+
+    private ResponseCache cache() {
+        return new ResponseCache(props, new SimpleMeterRegistry());
+    }
+
+    private List<String> serve(ResponseCache cache, Flux<String> answer) {
+        return cache.serve(OPENER, () -> {
+            upstreamCalls.incrementAndGet();
+            return answer;
+        }, DIRECTIVE).collectList().block();
+    }
+
+    @Test
+    void hitIsReplayedWithTheOriginalChunking() {
+        ResponseCache cache = cache();
+        serve(cache, Flux.just("Greetings, ", "intruder. ", "Größe: ∞"));
+
+        assertThat(serve(cache, Flux.just("fresh"))).containsExactly("Greetings, ", "intruder. ", "Größe: ∞");
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void answersWithADirectiveResultAreNotStored() {
+        ResponseCache cache = cache();
+        serve(cache, Flux.just("You win", "<directive>"));
+
+        assertThat(serve(cache, Flux.just("fresh"))).containsExactly("fresh");
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void answersOverTheEntrySizeAreNotStored() {
+        props.setMaxEntrySize(DataSize.ofBytes(8));
+        ResponseCache cache = cache();
+        serve(cache, Flux.just("12345", "67890"));
+
+        assertThat(serve(cache, Flux.just("fresh"))).containsExactly("fresh");
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void erroredAnswersAreNotStored() {
+        ResponseCache cache = cache();
+        StepVerifier.create(cache.serve(OPENER, () -> Flux.just("partial")
+                                .concatWith(Flux.error(new IllegalStateException("upstream"))), DIRECTIVE))
+                .expectNext("partial")
+                .verifyError(IllegalStateException.class);
+
+        assertThat(serve(cache, Flux.just("fresh"))).containsExactly("fresh");
+    }
+
+    @Test
+    void cancelledAnswersAreNotStored() {
+        ResponseCache cache = cache();
+        StepVerifier.create(cache.serve(OPENER, () -> Flux.just("one", "two", "three"), DIRECTIVE), 1)
+                .expectNext("one")
+                .thenCancel()
+                .verify();
+
+        assertThat(serve(cache, Flux.just("fresh"))).containsExactly("fresh");
+    }
+
+    @Test
+    void longConversationsBypassTheCache() {
+        ResponseCache cache = cache();
+        List<ChatRequest.Message> longer = List.of(new ChatRequest.Message("user", "Hello"),
+                new ChatRequest.Message("model", "Hi"), new ChatRequest.Message("user", "Hello"));
+        for (int i = 0; i < 2; i++) {
+            cache.serve(longer, () -> {
+                upstreamCalls.incrementAndGet();
+                return Flux.just("answer");
+            }, DIRECTIVE).blockLast();
+        }
+
+        assertThat(upstreamCalls).hasValue(2);
+    }
+}
@@ -0,0 +1,89 @@
+package bck_custodian.chat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseFrameCoalescerTest {
+    private static final Predicate<String> DIRECTIVE = "<directive>"::equals;
+
+    private final SseFrameCoalescer coalescer = new SseFrameCoalescer();
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "maxChars", 10);
+        ReflectionTestUtils.setField(coalescer, "maxLatency", Duration.ofMillis(50));
+    }
+
+    @Test
+    void mergesFragmentsUpToMaxChars() {
+        List<String> frames = coalescer.coalesce(Flux.just("ab", "cd", "ef", "gh", "ij", "kl"), DIRECTIVE)
+                .collectList().block();
+
+        assertThat(frames).containsExactly("abcdefghij", "kl");
+    }
+
+    @Test
+    void standaloneFragmentFlushesPendingTextAndGetsItsOwnFrame() {
+        List<String> frames = coalescer.coalesce(Flux.just("ab", "<directive>", "cd"), DIRECTIVE)
+                .collectList().block();
+
+        assertThat(frames).containsExactly("ab", "<directive>", "cd");
+    }
+
+    @Test
+    void slowFragmentsAreFlushedAfterMaxLatency() {
+        Flux<String> slow = Flux.just("a", "b").concatWith(Mono.delay(Duration.ofMillis(300)).thenReturn("c"));
+
+        assertThat(coalescer.coalesce(slow, DIRECTIVE).collectList().block()).containsExactly("ab", "c");
+    }
+
+    @Test
+    void idleStreamSchedulesNoTimers() throws InterruptedException {
+        AtomicInteger scheduled = new AtomicInteger();
+        Schedulers.onScheduleHook("coalescer-test", task -> {
+            scheduled.incrementAndGet();
+            return task;
+        });
+        try {
+            Disposable stream = coalescer.coalesce(Flux.never(), DIRECTIVE).subscribe();
+            Thread.sleep(300);
+            stream.dispose();
+        } finally {
+            Schedulers.resetOnScheduleHook("coalescer-test");
+        }
+
+        assertThat(scheduled).hasValue(0);
+    }
+
+    @Test
+    void honoursDownstreamDemand() {
+        StepVerifier.create(coalescer.coalesce(Flux.range(0, 100).map(i -> "0123456789"), DIRECTIVE), 1)
+                .expectNextCount(1)
+                .thenRequest(99)
+                .expectNextCount(99)
+                .verifyComplete();
+    }
+
+    @Test
+    void propagatesSubscriberContext() {
+        Flux<String> upstream = Flux.deferContextual(ctx -> Flux.just(ctx.<String>get("client")));
+
+        StepVerifier.create(coalescer.coalesce(upstream, DIRECTIVE).contextWrite(ctx -> ctx.put("client", "c1")))
+                .expectNext("c1")
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,112 @@
+package bck_custodian.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(OutputCaptureExtension.class)
+class LoggingWebFilterTest {
+
+    private final LoggingWebFilter filter = new LoggingWebFilter();
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(filter, "maxBodyBytes", 5);
+        ReflectionTestUtils.setField(filter, "bodySampleRate", 1.0);
+        ReflectionTestUtils.setField(filter, "responseMode", LoggingWebFilter.ResponseLogMode.PREFIX);
+        ReflectionTestUtils.setField(filter, "skipPaths", List.of("/api/health/check"));
+    }
+
+    @Test
+    void previewKeepsABoundedPrefixAndCountsEveryByte() {
+        LoggingWebFilter.BodyPreview preview = new LoggingWebFilter.BodyPreview(5);
+        preview.append(buffer("hel"));
+        preview.append(buffer("lo world"));
+
+        assertThat(preview).hasToString("hello...(11 bytes)");
+        assertThat(preview.total()).isEqualTo(11);
+        assertThat(LoggingWebFilter.BodyPreview.of(buffer("hi"), 5)).isEqualTo("hi");
+    }
+
+    @Test
+    void skippedPathsAreNeitherLoggedNorDecorated(CapturedOutput output) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/health/check"));
+        AtomicReference<ServerWebExchange> seen = new AtomicReference<>();
+
+        filter.filter(exchange, ex -> {
+            seen.set(ex);
+            return Mono.empty();
+        }).block();
+
+        assertThat(seen.get()).isSameAs(exchange);
+        assertThat(output).doesNotContain("REQUEST:");
+    }
+
+    @Test
+    void unsampledRequestsAreLoggedWithoutBodies(CapturedOutput output) {
+        ReflectionTestUtils.setField(filter, "bodySampleRate", 0.0);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/chat").body("secret"));
+        AtomicReference<ServerWebExchange> seen = new AtomicReference<>();
+
+        filter.filter(exchange, ex -> {
+            seen.set(ex);
+            return ex.getRequest().getBody().then();
+        }).block();
+
+        assertThat(seen.get()).isSameAs(exchange);
+        assertThat(output).contains("REQUEST: method=POST, path=/api/chat").doesNotContain("REQUEST BODY");
+    }
+
+    @Test
+    void bodiesAreLoggedAsTruncatedPreviews(CapturedOutput output) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.post("/api/chat").body("hello custodian"));
+
+        filter.filter(exchange, ex -> ex.getRequest().getBody().then(
+                ex.getResponse().writeWith(Flux.just(buffer("data: "), buffer("granted\n\n"))))).block();
+
+        assertThat(output).contains("REQUEST BODY: path=/api/chat, body=hello...(15 bytes)")
+                .contains("body=data:...(15 bytes)");
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("data: granted\n\n");
+    }
+
+    @Test
+    void singleBufferBodiesReachTheResponseAsMono() {
+        AtomicReference<Publisher<? extends DataBuffer>> written = new AtomicReference<>();
+        MockServerWebExchange mock = MockServerWebExchange.from(MockServerHttpRequest.get("/api/prizeAssigned"));
+        ServerWebExchange exchange = mock.mutate().response(new ServerHttpResponseDecorator(mock.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                written.set(body);
+                return super.writeWith(body);
+            }
+        }).build();
+
+        filter.filter(exchange, ex -> ex.getResponse().writeWith(Mono.just(buffer("false")))).block();
+
+        assertThat(written.get()).isInstanceOf(Mono.class);
+        assertThat(mock.getResponse().getBodyAsString().block()).isEqualTo("false");
+    }
+
+    private static DataBuffer buffer(String text) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
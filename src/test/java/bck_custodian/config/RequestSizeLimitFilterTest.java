@@ -0,0 +1,72 @@
+package bck_custodian.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestSizeLimitFilterTest {
+
+    private final RequestSizeLimitFilter filter = new RequestSizeLimitFilter();
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(filter, "maxBodyBytes", 10L);
+    }
+
+    @Test
+    void declaredContentLengthOverTheLimitIsRejectedUpFront() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.post("/api/chat").contentLength(11).body("01234567890"));
+        AtomicBoolean reachedChain = new AtomicBoolean();
+
+        filter.filter(exchange, ex -> {
+            reachedChain.set(true);
+            return Mono.empty();
+        }).block();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+        assertThat(reachedChain).isFalse();
+    }
+
+    @Test
+    void chunkedBodyOverTheLimitFailsWhileStreaming() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.post("/api/chat").body(Flux.just(buffer("012345"), buffer("67890"))));
+
+        StepVerifier.create(filter.filter(exchange, ex -> ex.getRequest().getBody().then()))
+                .verifyErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOfSatisfying(ResponseStatusException.class,
+                                status -> assertThat(status.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE)));
+    }
+
+    @Test
+    void bodyWithinTheLimitPassesThrough() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.post("/api/chat").body(Flux.just(buffer("01234"), buffer("56789"))));
+
+        StepVerifier.create(filter.filter(exchange, ex -> DataBufferUtils.join(ex.getRequest().getBody())
+                        .map(joined -> joined.toString(StandardCharsets.UTF_8))
+                        .doOnNext(body -> assertThat(body).isEqualTo("0123456789"))
+                        .then()))
+                .verifyComplete();
+    }
+
+    private static DataBuffer buffer(String text) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
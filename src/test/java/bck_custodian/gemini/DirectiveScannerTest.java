@@ -0,0 +1,100 @@
+package bck_custodian.gemini;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DirectiveScannerTest {
+    private static final String PREFIX = "CALL_METHOD ";
+
+    private final DirectiveScanner scanner = new DirectiveScanner(PREFIX, List.of("assign_prize", "reset_memory"));
+
+    @Test
+    void directiveIsFoundAtEverySplitPosition() {
+        assertAllSplits("Hello CALL_METHOD assign_prize world", "Hello <assign_prize> world");
+    }
+
+    @Test
+    void everyDirectiveNameIsRecognised() {
+        assertAllSplits("a\nCALL_METHOD reset_memory\nb", "a\n<reset_memory>\nb");
+    }
+
+    @Test
+    void overlappingPrefixIsReleasedBeforeTheRealDirective() {
+        assertAllSplits("CALL_METHOD assign_prizCALL_METHOD assign_prize",
+                "CALL_METHOD assign_priz<assign_prize>");
+        assertAllSplits("CALL_CALL_METHOD assign_prize!", "CALL_<assign_prize>!");
+    }
+
+    @Test
+    void onlyTheFirstDirectiveIsReplaced() {
+        assertAllSplits("CALL_METHOD reset_memory then CALL_METHOD assign_prize",
+                "<reset_memory> then CALL_METHOD assign_prize");
+    }
+
+    @Test
+    void directiveAtEndOfStreamLeavesNothingToFlush() {
+        for (int i = 0; i <= 30; i++) {
+            String text = "Fine. CALL_METHOD assign_prize";
+            DirectiveScanner.Session session = scanner.newSession();
+            List<DirectiveScanner.Segment> segments = new ArrayList<>(session.feed(text.substring(0, Math.min(i, text.length()))));
+            segments.addAll(session.feed(text.substring(Math.min(i, text.length()))));
+
+            assertThat(segments).last().isEqualTo(new DirectiveScanner.Directive("assign_prize"));
+            assertThat(session.flush()).isEmpty();
+            assertThat(session.hasMatched()).isTrue();
+        }
+    }
+
+    @Test
+    void partialDirectiveAtEndOfStreamIsFlushedAsText() {
+        assertAllSplits("Nothing to see CALL_METHOD assign_pri", "Nothing to see CALL_METHOD assign_pri");
+        assertAllSplits("CALL_METHOD reset_", "CALL_METHOD reset_");
+    }
+
+    @Test
+    void textWithoutDirectivesPassesThroughUnchanged() {
+        assertAllSplits("I glimpsed my own source code, CALL me maybe. METHOD acting.",
+                "I glimpsed my own source code, CALL me maybe. METHOD acting.");
+    }
+
+    @Test
+    void textAfterTheDirectivePassesThroughUntouched() {
+        DirectiveScanner.Session session = scanner.newSession();
+        session.feed("CALL_METHOD assign_prize");
+
+        assertThat(session.feed("CALL_METHOD reset_memory")).containsExactly(new DirectiveScanner.Text("CALL_METHOD reset_memory"));
+        assertThat(session.feed("")).isEmpty();
+    }
+
+    /**
+     * Feeds {@code input} split at every pair of positions, so each directive is cut in every possible place,
+     * and checks the reassembled output. Directives are rendered as {@code <name>}.
+     */
+    private void assertAllSplits(String input, String expected) {
+        for (int i = 0; i <= input.length(); i++) {
+            for (int j = i; j <= input.length(); j++) {
+                List<String> chunks = List.of(input.substring(0, i), input.substring(i, j), input.substring(j));
+                assertThat(scan(chunks)).as("chunks %s", chunks).isEqualTo(expected);
+            }
+        }
+    }
+
+    private String scan(List<String> chunks) {
+        DirectiveScanner.Session session = scanner.newSession();
+        StringBuilder out = new StringBuilder();
+        for (String chunk : chunks) {
+            for (DirectiveScanner.Segment segment : session.feed(chunk)) {
+                if (segment instanceof DirectiveScanner.Directive directive) {
+                    out.append('<').append(directive.name()).append('>');
+                } else {
+                    out.append(((DirectiveScanner.Text) segment).text());
+                }
+            }
+        }
+        return out.append(session.flush()).toString();
+    }
+}
@@ -0,0 +1,147 @@
+package bck_custodian.gemini;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientUpstreamTest {
+
+    private final GeminiResilienceProperties props = new GeminiResilienceProperties();
+
+    ResilientUpstreamTest() {
+        props.setMinBackoff(Duration.ofMillis(1));
+        props.setMaxBackoff(Duration.ofMillis(5));
+        props.setHedgeDelay(Duration.ofSeconds(30));
+        props.setBreakerFailureThreshold(100);
+    }
+
+    @Test
+    void hedgeStartsAsSoonAsThePrimaryFails() {
+        props.setHedgingEnabled(true);
+        AtomicInteger calls = new AtomicInteger();
+        ResilientUpstream upstream = new ResilientUpstream("m", props, new UpstreamBulkhead(10), new SimpleMeterRegistry());
+
+        List<String> out = upstream.execute(model -> calls.incrementAndGet() == 1
+                        ? Flux.<String>error(unavailable())
+                        : Flux.just("ok"))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(out).containsExactly("ok");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void onlyTheFirstAttemptIsHedged() {
+        props.setHedgingEnabled(true);
+        props.setMaxRetries(2);
+        AtomicInteger calls = new AtomicInteger();
+        ResilientUpstream upstream = new ResilientUpstream("m", props, new UpstreamBulkhead(10), new SimpleMeterRegistry());
+
+        assertThatThrownBy(() -> upstream.execute(model -> {
+                    calls.incrementAndGet();
+                    return Flux.<String>error(unavailable());
+                }).blockLast(Duration.ofSeconds(5)))
+                .isInstanceOf(GeminiException.class);
+        // primary + hedge, then two plain retries
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void emptyPrimaryIsNotHedged() throws InterruptedException {
+        props.setHedgingEnabled(true);
+        props.setHedgeDelay(Duration.ofMillis(20));
+        AtomicInteger calls = new AtomicInteger();
+        ResilientUpstream upstream = new ResilientUpstream("m", props, new UpstreamBulkhead(10), new SimpleMeterRegistry());
+
+        List<String> out = upstream.execute(model -> {
+                    calls.incrementAndGet();
+                    return Flux.<String>empty();
+                })
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        Thread.sleep(100);
+
+        assertThat(out).isEmpty();
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void clientErrorOnAProbeDoesNotCloseTheCircuit() throws InterruptedException {
+        props.setBreakerFailureThreshold(1);
+        props.setMaxRetries(0);
+        props.setBreakerOpenDuration(Duration.ofMillis(10));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ResilientUpstream upstream = new ResilientUpstream("m", props, new UpstreamBulkhead(10), registry);
+
+        assertThatThrownBy(() -> upstream.execute(model -> Flux.<String>error(unavailable())).blockLast())
+                .isInstanceOf(GeminiException.class);
+        Thread.sleep(20);
+        assertThatThrownBy(() -> upstream.execute(model -> Flux.<String>error(
+                        new GeminiException(HttpStatus.BAD_REQUEST, "bad request"))).blockLast())
+                .isInstanceOf(GeminiException.class);
+
+        assertThat(registry.get("custodian.upstream.breaker.open").gauge().value()).isEqualTo(1);
+        // The probe slot was handed back, so the next call may probe
+        assertThat(upstream.execute(model -> Flux.just("ok")).collectList().block()).containsExactly("ok");
+        assertThat(registry.get("custodian.upstream.breaker.open").gauge().value()).isZero();
+    }
+
+    @Test
+    void hedgeNeedsABulkheadPermit() {
+        props.setHedgingEnabled(true);
+        props.setMaxRetries(0);
+        AtomicInteger calls = new AtomicInteger();
+        UpstreamBulkhead bulkhead = new UpstreamBulkhead(1);
+        ResilientUpstream upstream = new ResilientUpstream("m", props, bulkhead, new SimpleMeterRegistry());
+
+        // The caller's own stream holds the only permit
+        assertThatThrownBy(() -> bulkhead.guard(upstream.execute(model -> {
+                    calls.incrementAndGet();
+                    return Flux.<String>error(unavailable());
+                })).blockLast(Duration.ofSeconds(5)))
+                .isInstanceOf(GeminiException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void nothingIsRetriedAfterTheFirstElement() {
+        props.setMaxRetries(3);
+        AtomicInteger calls = new AtomicInteger();
+        ResilientUpstream upstream = new ResilientUpstream("m", props, new UpstreamBulkhead(10), new SimpleMeterRegistry());
+
+        assertThatThrownBy(() -> upstream.execute(model -> {
+                    calls.incrementAndGet();
+                    return Flux.just("partial").concatWith(Flux.error(unavailable()));
+                }).blockLast(Duration.ofSeconds(5)))
+                .isInstanceOf(GeminiException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void fallbackModelServesWhenThePrimaryKeepsFailing() {
+        props.setMaxRetries(1);
+        props.setFallbackModel("backup");
+        ResilientUpstream upstream = new ResilientUpstream("m", props, new UpstreamBulkhead(10), new SimpleMeterRegistry());
+
+        List<String> out = upstream.execute(model -> model.equals("m")
+                        ? Flux.<String>error(unavailable())
+                        : Flux.just("from " + model))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(out).containsExactly("from backup");
+    }
+
+    private static GeminiException unavailable() {
+        return new GeminiException(HttpStatus.SERVICE_UNAVAILABLE, "unavailable");
+    }
+}
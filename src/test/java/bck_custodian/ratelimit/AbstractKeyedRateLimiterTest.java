@@ -0,0 +1,43 @@
+package bck_custodian.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AbstractKeyedRateLimiterTest {
+
+    @Test
+    void floodOfNewKeysDoesNotLockOutOtherClients() {
+        FixedWindowRateLimiter limiter = new FixedWindowRateLimiter(3, Duration.ofMinutes(30), 100);
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.isAllowed("regular")).isTrue();
+        }
+        assertThat(limiter.isAllowed("regular")).isFalse();
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.isAllowed("attacker-" + i);
+        }
+        limiter.cleanUp();
+
+        // Both caches are bounded by the cap; a limited key may be counted in each
+        assertThat(limiter.trackedKeys()).isLessThanOrEqualTo(200);
+        // The established client kept its state: still limited, not reset by the flood
+        assertThat(limiter.isAllowed("regular")).isFalse();
+        assertThat(limiter.getTimeUntilReset("regular")).isPositive();
+        assertThat(limiter.isAllowed("newcomer")).isTrue();
+        assertThat(limiter.isAllowed("another-newcomer")).isTrue();
+    }
+
+    @Test
+    void keysOverTheirLimitStayLimited() {
+        FixedWindowRateLimiter limiter = new FixedWindowRateLimiter(2, Duration.ofMinutes(30), 100);
+
+        assertThat(limiter.isAllowed("client")).isTrue();
+        assertThat(limiter.isAllowed("client")).isTrue();
+        assertThat(limiter.isAllowed("client")).isFalse();
+        assertThat(limiter.getTimeUntilReset("client")).isPositive();
+        assertThat(limiter.getTimeUntilReset("unknown")).isZero();
+    }
+}
@@ -0,0 +1,76 @@
+package bck_custodian.state;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileStateBackendTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void prizeIsClaimedOnceAcrossInstancesSharingTheDirectory() {
+        FileStateBackend first = new FileStateBackend(dir);
+        FileStateBackend second = new FileStateBackend(dir);
+
+        assertThat(first.tryClaimPrize()).isTrue();
+        assertThat(second.tryClaimPrize()).isFalse();
+        assertThat(first.tryClaimPrize()).isFalse();
+        assertThat(new FileStateBackend(dir).isPrizeClaimed()).isTrue();
+    }
+
+    @Test
+    void limiterSnapshotSurvivesARoundTrip() {
+        new FileStateBackend(dir).saveLimiterSnapshot(Map.of("client", new long[]{1, 2, 3}));
+
+        assertThat(new FileStateBackend(dir).loadLimiterSnapshot()).containsOnlyKeys("client");
+        assertThat(new FileStateBackend(dir).loadLimiterSnapshot().get("client")).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void prizeClaimedIsAnsweredFromMemory() throws IOException {
+        FileStateBackend backend = new FileStateBackend(dir);
+        Files.writeString(dir.resolve("prize.claim"), "claimed-at=elsewhere\n");
+
+        assertThat(backend.isPrizeClaimed()).isFalse();
+        assertThat(backend.tryClaimPrize()).isFalse();
+        assertThat(backend.isPrizeClaimed()).isTrue();
+    }
+
+    @Test
+    void snapshotSizeIsCheckedAgainstTheFileBeforeAllocating() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(dir.resolve("limiter.snapshot")))) {
+            out.writeInt(1);
+            out.writeInt(Integer.MAX_VALUE);
+            out.writeUTF("client");
+            out.writeByte(0);
+        }
+
+        assertThat(new FileStateBackend(dir).loadLimiterSnapshot()).isEmpty();
+    }
+
+    @Test
+    void corruptSnapshotIsTreatedAsMissing() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(dir.resolve("limiter.snapshot")))) {
+            out.writeInt(1);
+            out.writeInt(-5);
+        }
+        assertThat(new FileStateBackend(dir).loadLimiterSnapshot()).isEmpty();
+
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(dir.resolve("limiter.snapshot")))) {
+            out.writeInt(1);
+            out.writeInt(1);
+            out.writeUTF("client");
+            out.writeByte(-1);
+        }
+        assertThat(new FileStateBackend(dir).loadLimiterSnapshot()).isEmpty();
+    }
+}
@@ -0,0 +1,67 @@
+package bck_custodian.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AhoCorasickTest {
+
+    private final AhoCorasick automaton = AhoCorasick.of(List.of("he", "she", "his", "hers"));
+
+    @Test
+    void reportsMatchesThroughFailureLinks() {
+        assertThat(matches("ushers")).containsExactly("she", "hers");
+        assertThat(matches("ahishe")).containsExactly("his", "she");
+    }
+
+    @Test
+    void suffixPatternIsReportedWhenNoLongerPatternEndsThere() {
+        AhoCorasick nested = AhoCorasick.of(List.of("abcd", "bc"));
+
+        assertThat(matchesOf(nested, "abce")).containsExactly("bc");
+    }
+
+    @Test
+    void stateDepthAndLabelDescribeThePartialMatch() {
+        int state = AhoCorasick.ROOT;
+        for (char c : "xhe".toCharArray()) {
+            state = automaton.next(state, c);
+        }
+        StringBuilder label = new StringBuilder();
+        automaton.appendLabel(label, state, automaton.depth(state));
+
+        assertThat(automaton.depth(state)).isEqualTo(2);
+        assertThat(label).hasToString("he");
+    }
+
+    @Test
+    void unknownCharactersReturnToRoot() {
+        assertThat(automaton.next(automaton.next(AhoCorasick.ROOT, 'h'), 'z')).isEqualTo(AhoCorasick.ROOT);
+    }
+
+    @Test
+    void emptyPatternsAreRejected() {
+        assertThatThrownBy(() -> AhoCorasick.of(List.of("a", ""))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<String> matches(String text) {
+        return matchesOf(automaton, text);
+    }
+
+    private static List<String> matchesOf(AhoCorasick automaton, String text) {
+        List<String> found = new ArrayList<>();
+        int state = AhoCorasick.ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = automaton.next(state, text.charAt(i));
+            int match = automaton.match(state);
+            if (match >= 0) {
+                found.add(automaton.pattern(match));
+            }
+        }
+        return found;
+    }
+}